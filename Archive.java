@@ -0,0 +1,328 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * archive：把一个commit中的全部文件按文件名顺序写成tar、tar.gz或zip
+ *
+ * 文件内容从对象库直接流式写入归档（分块保存的blob逐块读取） 不经过working dir，
+ * 内存中只有当前的一块数据 与文件大小无关。
+ * tar为POSIX ustar格式：文件名超过100字节、包含非ASCII字符或文件不小于8GB时 在前面加一个PAX扩展头。
+ * 所有条目的权限为0644 修改时间为commit的时间。
+ *
+ * tar.gz的压缩可以并行：tar流按BLOCK切块，每块在共享线程池（Workers）中压缩成一个独立的gzip member，
+ * 按顺序写出（多个member首尾相接仍是合法的gzip文件 gzip、tar和GZIPInputStream都能直接解压）。
+ * 同时压缩的块数不超过THREADS 写出一块后才提交下一块 内存占用为 THREADS * BLOCK。
+ * THREADS为1时使用普通的GZIPOutputStream。zip由ZipOutputStream逐个条目压缩：
+ * java.util.zip不能写入已经压缩好的数据 因此zip不并行压缩。
+ */
+class Archive {
+
+    /** 并行压缩时每个gzip member的未压缩大小 */
+    static final int BLOCK = 1 << 20;
+    private static final int TAR_BLOCK = 512;
+    /** ustar头中11位八进制的大小上限 */
+    private static final long MAX_USTAR_SIZE = 077777777777L;
+
+    enum Format {
+        TAR, TAR_GZ, ZIP;
+
+        /** 由归档文件名的扩展名决定格式 */
+        static Format of(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".tar")) {
+                return TAR;
+            } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return TAR_GZ;
+            } else if (name.endsWith(".zip")) {
+                return ZIP;
+            }
+            throw new GitletException("Unknown archive format: " + fileName);
+        }
+    }
+
+    /** 读取blob所需的仓库操作 */
+    interface Source {
+        long size(String blobID);
+
+        void writeTo(String blobID, OutputStream out) throws IOException;
+    }
+
+    private final Source source;
+    private final Format format;
+    private final int threads;
+    private final long mtime;
+
+    Archive(Source source, Format format, int threads, long mtime) {
+        this.source = source;
+        this.format = format;
+        this.threads = Math.max(1, threads);
+        this.mtime = mtime;
+    }
+
+    /** 把BLOBS（文件名 -- blob ID 按文件名顺序）写入OUT  不关闭OUT */
+    Stats write(Map<String, String> blobs, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Stats stats = new Stats();
+        Counter counted = new Counter(out);
+        if (format == Format.ZIP) {
+            ZipOutputStream zip = new ZipOutputStream(counted);
+            for (Map.Entry<String, String> entry : blobs.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(mtime);
+                zip.putNextEntry(zipEntry);
+                source.writeTo(entry.getValue(), zip);
+                zip.closeEntry();
+                stats.add(source.size(entry.getValue()));
+            }
+            zip.finish();
+        } else if (format == Format.TAR_GZ && threads > 1) {
+            ParallelGzip gzip = new ParallelGzip(counted, threads);
+            try {
+                writeTar(blobs, gzip, stats);
+                gzip.finish();
+            } finally {
+                gzip.cancel();
+            }
+        } else if (format == Format.TAR_GZ) {
+            GZIPOutputStream gzip = new GZIPOutputStream(counted, 1 << 16);
+            writeTar(blobs, gzip, stats);
+            gzip.finish();
+        } else {
+            writeTar(blobs, counted, stats);
+        }
+        counted.flush();
+        stats.written = counted.count;
+        stats.nanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    private void writeTar(Map<String, String> blobs, OutputStream out, Stats stats) throws IOException {
+        Counter counted = new Counter(out);
+        for (Map.Entry<String, String> entry : blobs.entrySet()) {
+            String path = entry.getKey();
+            long size = source.size(entry.getValue());
+            byte[] name = path.getBytes(StandardCharsets.UTF_8);
+            boolean ascii = name.length == path.length();
+            if (name.length > 100 || !ascii || size > MAX_USTAR_SIZE) {
+                StringBuilder records = new StringBuilder();
+                if (name.length > 100 || !ascii) {
+                    records.append(paxRecord("path", path));
+                }
+                if (size > MAX_USTAR_SIZE) {
+                    records.append(paxRecord("size", Long.toString(size)));
+                }
+                byte[] pax = records.toString().getBytes(StandardCharsets.UTF_8);
+                out.write(tarHeader("././@PaxHeader", pax.length, 'x'));
+                out.write(pax);
+                pad(out, pax.length);
+            }
+            String shortName = ascii && name.length <= 100 ? path : asciiPrefix(path);
+            out.write(tarHeader(shortName, size > MAX_USTAR_SIZE ? 0 : size, '0'));
+            long before = counted.count;
+            source.writeTo(entry.getValue(), counted);
+            if (counted.count - before != size) {
+                throw new IllegalArgumentException("Blob " + entry.getValue() + " changed size while archiving.");
+            }
+            pad(out, size);
+            stats.add(size);
+        }
+        out.write(new byte[2 * TAR_BLOCK]);
+    }
+
+    /** PAX扩展头中的一条记录 "长度 key=value\n"  长度包括长度本身的位数 */
+    private static String paxRecord(String key, String value) {
+        int body = key.getBytes(StandardCharsets.UTF_8).length + value.getBytes(StandardCharsets.UTF_8).length + 3;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length++;
+        }
+        return length + " " + key + "=" + value + "\n";
+    }
+
+    /** PAX头中已有完整文件名时 ustar头中的文件名：前100个字符中的ASCII部分 */
+    private static String asciiPrefix(String path) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < path.length() && sb.length() < 100; i++) {
+            char c = path.charAt(i);
+            sb.append(c < 0x80 ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private byte[] tarHeader(String name, long size, char type) {
+        byte[] header = new byte[TAR_BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(100, nameBytes.length));
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime / 1000);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    /** 在HEADER[OFFSET, OFFSET+LENGTH)中写入 LENGTH-1 位八进制数和结尾的NUL */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        for (int i = offset + length - 2; i >= offset; i--) {
+            header[i] = (byte) ('0' + (value & 7));
+            value >>>= 3;
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    /** 补齐到512字节的整数倍 */
+    private static void pad(OutputStream out, long size) throws IOException {
+        int rest = (int) (size % TAR_BLOCK);
+        if (rest != 0) {
+            out.write(new byte[TAR_BLOCK - rest]);
+        }
+    }
+
+    /** 记录写入的字节数 */
+    private static class Counter extends FilterOutputStream {
+        long count;
+
+        Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /** 每BLOCK字节压缩成一个独立的gzip member  至多THREADS块同时在共享线程池中压缩 按顺序写出 */
+    private static class ParallelGzip extends OutputStream {
+        private final OutputStream out;
+        private final int threads;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] block = new byte[BLOCK];
+        private int length;
+
+        ParallelGzip(OutputStream out, int threads) {
+            this.out = out;
+            this.threads = threads;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, BLOCK - length);
+                System.arraycopy(b, off, block, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == BLOCK) {
+                    submit();
+                }
+            }
+        }
+
+        /** 压缩剩余的数据 写出全部member（不关闭OUT） */
+        void finish() throws IOException {
+            if (length > 0) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                writeFirst();
+            }
+        }
+
+        /** 取消尚未写出的压缩 */
+        void cancel() {
+            for (Future<byte[]> result : pending) {
+                result.cancel(false);
+            }
+            pending.clear();
+        }
+
+        private void submit() throws IOException {
+            if (pending.size() >= threads) {
+                writeFirst();
+            }
+            byte[] data = block;
+            int size = length;
+            pending.add(Workers.submit(() -> compress(data, size)));
+            block = new byte[BLOCK];
+            length = 0;
+        }
+
+        private void writeFirst() throws IOException {
+            try {
+                out.write(pending.poll().get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalArgumentException(String.valueOf(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GitletException("Interrupted.");
+            }
+        }
+
+        private static byte[] compress(byte[] data, int size) throws IOException {
+            ByteArrayOutputStream member = new ByteArrayOutputStream(size / 3 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(member, 1 << 16)) {
+                gzip.write(data, 0, size);
+            }
+            return member.toByteArray();
+        }
+    }
+
+    /** 一次archive的统计信息 */
+    static class Stats {
+        long files;
+        long bytes;
+        long written;
+        long nanos;
+
+        void add(long size) {
+            files++;
+            bytes += size;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Archived %d files (%.1f MB, %.1f MB written) in %.1f ms",
+                    files, bytes / (1024.0 * 1024.0), written / (1024.0 * 1024.0), nanos / 1e6);
+        }
+    }
+}
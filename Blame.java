@@ -0,0 +1,294 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static gitlet.Utils.*;
+
+/**
+ * blame：文件的每一行是由哪个commit引入的
+ *
+ * 文件的一个版本以引入该blob的commit V表示：从某个commit出发，只要有parent中该文件的blob ID相同就沿它向前
+ * （merge commit可以沿第二个parent），直到所有parent中的版本都不同为止。沿第一个parent没有修改该文件的一段
+ * 由commit图中的修改路径过滤器直接跳过 不读取commit对象。
+ * 版本V的结果：所有行先归于V，再与每个parent中该文件的版本做行级diff，没有改变的行继承parent版本中对应行的结果
+ * （先到先得：第一个parent优先）。因此只有blob ID改变的地方才需要diff。
+ *
+ * 版本的结果按 (V, 文件名, blob ID) 缓存在 .gitlet/blame-cache 中：
+ *   int commit数 | 每个commit 20字节ID + long 时间 | int 行数 | 每行一个int（前面commit的下标）
+ * 只缓存被blame的版本和每计算CHECKPOINT个版本中的一个：再次blame时只需计算之后新增的版本，
+ * 遇到有缓存的版本就停止；保存commit的时间 输出时不需要读取每个commit。
+ * 历史可能很长 版本之间的依赖用显式的栈按后序计算 不使用递归。
+ */
+class Blame {
+
+    private static final int ID_BYTES = UID_LENGTH / 2;
+    private static final int CHECKPOINT = 32;
+
+    /** blame需要的仓库操作 */
+    interface Source {
+        Commit commit(String ID);
+
+        byte[] blob(String blobID);
+
+        /** 从ID出发沿第一个parent 第一个可能修改了PATH的commit（包括ID本身）  没有时返回null */
+        String firstTouching(String ID, String path);
+    }
+
+    private final File cacheDir;
+    private final String path;
+    private final Source source;
+    /** 结果中出现的commit -- commit的时间 */
+    private final Map<String, Date> dates = new HashMap<>();
+
+    Blame(File cacheDir, String path, Source source) {
+        this.cacheDir = cacheDir;
+        this.path = path;
+        this.source = source;
+    }
+
+    /** commit ID中（blob为BLOBID的）文件每一行所在的commit */
+    String[] run(String ID, String blobID) {
+        Version top = resolve(ID, blobID);
+        Map<String, String[]> done = new HashMap<>();
+        int computed = 0;
+        Deque<Version> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            Version version = stack.peek();
+            if (done.containsKey(version.key)) {
+                stack.pop();
+                continue;
+            }
+            String[] cached = readCache(version.key);
+            if (cached != null) {
+                done.put(version.key, cached);
+                stack.pop();
+                continue;
+            }
+            if (version.parents == null) {
+                version.parents = new ArrayList<>();
+                for (String parent : source.commit(version.commitID).getParents()) {
+                    String parentBlob = parent == null ? null : source.commit(parent).getBlobs().get(path);
+                    if (parentBlob != null) {
+                        version.parents.add(resolve(parent, parentBlob));
+                    }
+                }
+            }
+            boolean ready = true;
+            for (Version parent : version.parents) {
+                if (!done.containsKey(parent.key)) {
+                    stack.push(parent);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                String[] origins = compute(version, done);
+                if (version == top || ++computed % CHECKPOINT == 0) {
+                    writeCache(version.key, origins);
+                }
+                done.put(version.key, origins);
+                stack.pop();
+            }
+        }
+        return done.get(top.key);
+    }
+
+    /** run的结果中的commit的时间 */
+    Date date(String commitID) {
+        return dates.get(commitID);
+    }
+
+    /** 删除缓存  gc删除commit后调用 */
+    static void clearCache(File cacheDir) {
+        ObjectCloner.deleteTree(cacheDir);
+    }
+
+    /** 引入commit ID中版本BLOBID的commit */
+    private Version resolve(String ID, String blobID) {
+        while (true) {
+            String candidate = source.firstTouching(ID, path);
+            if (candidate == null) {
+                return new Version(ID, blobID);
+            }
+            //过滤器可能误判 或者merge commit的第二个parent中是同一个版本
+            String same = null;
+            for (String parent : source.commit(candidate).getParents()) {
+                if (parent != null && blobID.equals(source.commit(parent).getBlobs().get(path))) {
+                    same = parent;
+                    break;
+                }
+            }
+            if (same == null) {
+                return new Version(candidate, blobID);
+            }
+            ID = same;
+        }
+    }
+
+    /** 由parent版本的结果得到VERSION的结果 */
+    private String[] compute(Version version, Map<String, String[]> done) {
+        Diff.Lines lines = Diff.Lines.split(source.blob(version.blobID));
+        String[] origins = new String[lines.size()];
+        Arrays.fill(origins, version.commitID);
+        dates.put(version.commitID, source.commit(version.commitID).getDate());
+        boolean[] inherited = new boolean[origins.length];
+        for (Version parent : version.parents) {
+            String[] parentOrigins = done.get(parent.key);
+            Diff.Lines parentLines = Diff.Lines.split(source.blob(parent.blobID));
+            int[][] seqs = Diff.intern(parentLines, lines);
+            List<Diff.Edit> edits = new ArrayList<>(Diff.diff(seqs[0], seqs[1]));
+            edits.add(new Diff.Edit(seqs[0].length, seqs[0].length, seqs[1].length, seqs[1].length));
+            int a = 0;
+            int b = 0;
+            for (Diff.Edit edit : edits) {
+                for (; b < edit.bStart; a++, b++) {
+                    if (!inherited[b] && a < parentOrigins.length) {
+                        origins[b] = parentOrigins[a];
+                        inherited[b] = true;
+                    }
+                }
+                a = edit.aEnd;
+                b = edit.bEnd;
+            }
+        }
+        return origins;
+    }
+
+    private File cacheFile(String key) {
+        return join(cacheDir, key.substring(0, 2), key.substring(2));
+    }
+
+    /** 读取缓存的结果  不存在或损坏时返回null */
+    private String[] readCache(String key) {
+        File file = cacheFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(readContents(file));
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / (ID_BYTES + 8)) {
+                return null;
+            }
+            String[] commits = new String[count];
+            byte[] raw = new byte[ID_BYTES];
+            for (int i = 0; i < commits.length; i++) {
+                buffer.get(raw);
+                commits[i] = toHex(raw);
+                dates.put(commits[i], new Date(buffer.getLong()));
+            }
+            int lines = buffer.getInt();
+            if (lines < 0 || lines > buffer.remaining() / 4) {
+                return null;
+            }
+            String[] origins = new String[lines];
+            for (int i = 0; i < origins.length; i++) {
+                origins[i] = commits[buffer.getInt()];
+            }
+            return buffer.hasRemaining() ? null : origins;
+        } catch (RuntimeException e) {
+            //缓存损坏时重新计算
+            return null;
+        }
+    }
+
+    private void writeCache(String key, String[] origins) {
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        for (String origin : origins) {
+            indexes.putIfAbsent(origin, indexes.size());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(indexes.size());
+            for (String commit : indexes.keySet()) {
+                for (int k = 0; k < ID_BYTES; k++) {
+                    out.write(Integer.parseInt(commit.substring(2 * k, 2 * k + 2), 16));
+                }
+                out.writeLong(dates.get(commit).getTime());
+            }
+            out.writeInt(origins.length);
+            for (String origin : origins) {
+                out.writeInt(indexes.get(origin));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        File file = cacheFile(key);
+        file.getParentFile().mkdirs();
+        writeContents(file, (Object) bytes.toByteArray());
+    }
+
+    private static String toHex(byte[] raw) {
+        char[] hex = new char[UID_LENGTH];
+        for (int k = 0; k < ID_BYTES; k++) {
+            int b = raw[k] & 0xff;
+            hex[2 * k] = Character.forDigit(b >>> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    /** 文件的一个版本：引入它的commit和blob ID */
+    private class Version {
+        final String commitID;
+        final String blobID;
+        final String key;
+        /** 各parent中的版本  读取缓存失败后才计算 */
+        List<Version> parents;
+
+        Version(String commitID, String blobID) {
+            this.commitID = commitID;
+            this.blobID = blobID;
+            this.key = sha1(commitID, path, blobID);
+        }
+    }
+
+    /** blame的结果：每一行的commit和内容 */
+    static class Result {
+        /** 每一行所在commit的完整ID */
+        public final List<String> commits;
+        private final List<String> formatted = new ArrayList<>();
+
+        /** LABEL给出每个commit在输出中的前缀（缩写的ID和日期） */
+        Result(String[] origins, byte[] content, Function<String, String> label) {
+            commits = Collections.unmodifiableList(Arrays.asList(origins));
+            Diff.Lines lines = Diff.Lines.split(content);
+            Map<String, String> labels = new HashMap<>();
+            int width = String.valueOf(origins.length).length();
+            for (int i = 0; i < origins.length; i++) {
+                int end = lines.end(i);
+                if (end > lines.start(i) && content[end - 1] == '\n') {
+                    end--;
+                }
+                String text = new String(content, lines.start(i), end - lines.start(i), StandardCharsets.UTF_8);
+                formatted.add(String.format("%s %" + width + "d) %s",
+                        labels.computeIfAbsent(origins[i], label), i + 1, text));
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (String line : formatted) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+}
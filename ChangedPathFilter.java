@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * 一个commit相对第一个parent修改（新增、改变、删除）的文件名的Bloom过滤器
+ *
+ * 每个文件名约10位 7个哈希函数（误判率约1%） 不为空时至少MIN_BYTES字节：误判的代价是读取commit和它的parent，
+ * 修改的文件很少时多用几个字节换取接近0的误判率。哈希由文件名UTF-8字节的64位FNV-1a得到：
+ * 低32位和高32位作为h1、h2 第i个位置为 h1 + i*h2（double hashing），因此结果与JVM无关 可以保存在文件中。
+ * 修改的文件超过MAX_PATHS个时不建立过滤器（null） 表示任何文件都可能被修改。
+ * 没有修改任何文件时为长度为0的过滤器 不包含任何文件。
+ */
+final class ChangedPathFilter {
+
+    static final int MAX_PATHS = 512;
+    private static final int BITS_PER_PATH = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_BYTES = 8;
+
+    private ChangedPathFilter() {
+    }
+
+    /** 包含PATHS的过滤器  PATHS过多时返回null */
+    static byte[] create(Collection<String> paths) {
+        if (paths.size() > MAX_PATHS) {
+            return null;
+        }
+        byte[] filter = new byte[paths.isEmpty() ? 0 : Math.max(MIN_BYTES, (paths.size() * BITS_PER_PATH + 7) / 8)];
+        for (String path : paths) {
+            long hash = hash(path);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = bit(h1 + i * h2, filter.length);
+                filter[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return filter;
+    }
+
+    /** FILTER中是否可能包含PATH  返回false时PATH一定没有被修改 */
+    static boolean mightContain(byte[] filter, String path) {
+        if (filter == null) {
+            return true;
+        }
+        if (filter.length == 0) {
+            return false;
+        }
+        long hash = hash(path);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = bit(h1 + i * h2, filter.length);
+            if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bit(int h, int bytes) {
+        return (int) ((h & 0xffffffffL) % (bytes * 8L));
+    }
+
+    private static long hash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
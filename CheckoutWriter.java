@@ -0,0 +1,323 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static gitlet.Utils.*;
+
+/**
+ * checkout时将blob内容并行写入工作目录
+ *
+ * 先通过add收集所有需要写入的文件 再由run统一执行：
+ *  1. 按所在目录排序 同一目录的文件分到相邻的批次中 每个批次作为共享线程池（Workers）中的一个任务
+ *  2. 读入内存但尚未写出的字节数不超过maxInFlightBytes（用Semaphore计数 单个文件超过上限时按上限计）
+ * run返回写入的文件数、字节数和耗时 用于 --stats 输出
+ *
+ * link模式（config checkout.mode link）：blob在对象库中以原始内容保存 不复制内容而是与对象库共享：
+ *  1. 文件系统支持copy-on-write克隆（btrfs、XFS等）时 不小于CLONE_MIN的blob用克隆放到工作目录，
+ *     之后的修改只会写到新的数据块 不可能改动已保存的对象；较小的blob直接复制（启动克隆的代价比复制更大）。
+ *     JDK没有提供reflink的接口 克隆由GNU coreutils的 cp --reflink=always 完成，只在Linux上使用；
+ *     每个仓库只在.gitlet/tmp中探测一次是否支持（不在对象库中创建探测文件）。
+ *  2. 不支持克隆时使用硬链接。硬链接与对象共享inode 只读权限挡不住文件所有者和root，
+ *     因此只在能读取inode ctime的文件系统上链接：调用者把每个链接记入LinkLedger，
+ *     之后的命令发现ctime变化时重新校验对象（见LinkLedger）。链接前仍把blob设为只读 防止无意中的修改。
+ *     链接数已大于1的blob（与clone出的仓库或工作目录中的其他文件共享inode）不链接而是复制：
+ *     否则在原地修改工作目录中的文件会同时改动其他仓库中的历史（clone一侧的规则见ObjectCloner）。
+ *  gitlet自己写入工作目录之前都先通过detach删除被共享的文件 再写入新文件 从不在原地覆盖。
+ * 克隆或链接失败时（跨文件系统等）以及blob分块保存（没有原始内容的文件）时退回到复制。
+ *
+ * 分块保存的blob由ChunkStore并行读取各个块 直接写到目标文件中对应的位置 不需要整个读入内存，
+ * 因此不占用在途字节的额度（同时在途的只有正在读写的几个块）。
+ */
+class CheckoutWriter {
+
+    /** 默认的在途字节上限 */
+    static final int DEFAULT_MAX_IN_FLIGHT = 64 << 20;
+    /** 每个批次最多包含的文件数 */
+    private static final int BATCH_FILES = 64;
+    /** link模式下克隆的最小文件大小  启动一个cp进程的代价约相当于复制几MB */
+    static final long CLONE_MIN = 16 << 20;
+    /** 探测用的临时目录 -- 是否支持copy-on-write克隆 */
+    private static final Map<String, Boolean> CLONE_SUPPORT = new ConcurrentHashMap<>();
+
+    private final File blobsDir;
+    /** 探测是否支持克隆时使用的临时目录（与对象库在同一个文件系统上） */
+    private final File tmpDir;
+    private final ChunkStore chunks;
+    private final int maxInFlightBytes;
+    private final boolean link;
+    private final List<String[]> pending = new ArrayList<>();
+    /** 一次克隆或硬链接失败后 本次checkout剩下的文件直接复制 */
+    private volatile boolean cloneSupported;
+    private volatile boolean linkSupported;
+    /** 硬链接到对象库的文件 */
+    private final Set<File> linked = ConcurrentHashMap.newKeySet();
+
+    CheckoutWriter(File blobsDir, File tmpDir, ChunkStore chunks, boolean link) {
+        this(blobsDir, tmpDir, chunks, link, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    CheckoutWriter(File blobsDir, File tmpDir, ChunkStore chunks, boolean link, int maxInFlightBytes) {
+        this.blobsDir = blobsDir;
+        this.tmpDir = tmpDir;
+        this.chunks = chunks;
+        this.link = link;
+        this.maxInFlightBytes = maxInFlightBytes;
+        if (link) {
+            cloneSupported = cloneSupported(tmpDir);
+            linkSupported = !cloneSupported && canVerify(blobsDir);
+        }
+    }
+
+    /** 登记一个需要写入的文件：将blob BLOBID的内容写到TARGET */
+    void add(File target, String blobID) {
+        pending.add(new String[]{target.getPath(), blobID});
+    }
+
+    /** run之后 被硬链接到对象库的文件  调用者需要把它们记入LinkLedger */
+    Set<File> linkedFiles() {
+        return linked;
+    }
+
+    /** 写入所有登记的文件 任一文件写入失败时抛出IllegalArgumentException */
+    Stats run() {
+        long start = System.nanoTime();
+        pending.sort(Comparator.comparing((String[] p) -> new File(p[0]).getParent(),
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(p -> p[0]));
+
+        Semaphore budget = new Semaphore(maxInFlightBytes);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            int from = 0;
+            while (from < pending.size()) {
+                String dir = new File(pending.get(from)[0]).getParent();
+                int to = from + 1;
+                while (to < pending.size() && to - from < BATCH_FILES
+                        && equalsOrNull(dir, new File(pending.get(to)[0]).getParent())) {
+                    to++;
+                }
+                List<String[]> batch = pending.subList(from, to);
+                results.add(Workers.submit(() -> writeBatch(batch, budget)));
+                from = to;
+            }
+            long files = 0;
+            long bytes = 0;
+            long links = 0;
+            long clones = 0;
+            for (Future<long[]> result : results) {
+                long[] done = result.get();
+                files += done[0];
+                bytes += done[1];
+                links += done[2];
+                clones += done[3];
+            }
+            return new Stats(files, bytes, links, clones, System.nanoTime() - start);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalArgumentException("checkout failed: " + cause.getMessage());
+        } finally {
+            for (Future<long[]> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    private long[] writeBatch(List<String[]> batch, Semaphore budget) throws InterruptedException {
+        long bytes = 0;
+        long links = 0;
+        long clones = 0;
+        for (String[] p : batch) {
+            File target = new File(p[0]);
+            String blobID = p[1];
+            File blob = join(blobsDir, blobID.substring(0, 2), blobID.substring(2));
+            if (cloneSupported && blob.length() >= CLONE_MIN && tryClone(blob, target)) {
+                bytes += blob.length();
+                clones++;
+                continue;
+            }
+            if (linkSupported && tryLink(blob, target)) {
+                bytes += blob.length();
+                links++;
+                continue;
+            }
+            if (!blob.isFile() && chunks.contains(blobID)) {
+                prepare(target);
+                bytes += chunks.writeTo(blobID, target);
+                continue;
+            }
+            int permits = (int) Math.min(maxInFlightBytes, Math.max(1, blob.length()));
+            budget.acquire(permits);
+            try {
+                byte[] content = readContents(blob);
+                prepare(target);
+                writeContents(target, content);
+                bytes += content.length;
+            } finally {
+                budget.release(permits);
+            }
+        }
+        return new long[]{batch.size(), bytes, links, clones};
+    }
+
+    /** 创建TARGET所在的目录 并断开可能存在的硬链接 */
+    private static void prepare(File target) {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        detach(target);
+    }
+
+    /** 用硬链接把BLOB放到TARGET  BLOB已被共享或链接失败时返回false 由调用者退回到复制 */
+    private boolean tryLink(File blob, File target) {
+        if (!blob.isFile()) {
+            return false;
+        }
+        try {
+            if (blob.canWrite()) {
+                blob.setWritable(false, false);
+            }
+            File parent = target.getParentFile();
+            if (parent != null && !parent.isDirectory()) {
+                parent.mkdirs();
+            }
+            Files.deleteIfExists(target.toPath());
+            if (linkCount(blob) != 1) {
+                return false;
+            }
+            Files.createLink(target.toPath(), blob.toPath());
+            linked.add(target);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            linkSupported = false;
+            return false;
+        }
+    }
+
+    /** 用copy-on-write克隆把BLOB放到TARGET  失败时返回false 由调用者退回到复制 */
+    private boolean tryClone(File blob, File target) {
+        if (!blob.isFile()) {
+            return false;
+        }
+        prepare(target);
+        if (cloneFile(blob, target)) {
+            return true;
+        }
+        target.delete();
+        cloneSupported = false;
+        return false;
+    }
+
+    /** 在临时目录DIR中克隆一个文件 判断DIR所在的文件系统是否支持copy-on-write克隆（只在Linux上探测） */
+    private static boolean cloneSupported(File dir) {
+        if (!System.getProperty("os.name", "").startsWith("Linux")) {
+            return false;
+        }
+        return CLONE_SUPPORT.computeIfAbsent(dir.getAbsolutePath(), path -> {
+            File probe = join(dir, "clone-probe-" + Thread.currentThread().getId());
+            File copy = new File(probe.getPath() + ".copy");
+            try {
+                dir.mkdirs();
+                writeContents(probe, "probe");
+                return cloneFile(probe, copy);
+            } catch (IllegalArgumentException e) {
+                return false;
+            } finally {
+                probe.delete();
+                copy.delete();
+                dir.delete();
+            }
+        });
+    }
+
+    /** 用 cp --reflink=always 克隆FROM到TO（不支持克隆时失败 不会退回到复制） */
+    private static boolean cloneFile(File from, File to) {
+        try {
+            Process process = new ProcessBuilder("cp", "--reflink=always", from.getPath(), to.getPath())
+                    .redirectErrorStream(true).start();
+            InputStream out = process.getInputStream();
+            while (out.read() >= 0) {
+                //丢弃错误信息
+            }
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** 能否读取DIR所在文件系统的inode ctime（校验硬链接需要） */
+    private static boolean canVerify(File dir) {
+        try {
+            LinkLedger.ctime(dir);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 工作目录中的FILE可能是指向对象库的硬链接  在原地写入之前先删除它 以免修改已保存的对象
+     * 所有写入工作目录的地方都要先调用这个方法
+     */
+    static void detach(File file) {
+        if (!file.isFile()) {
+            return;
+        }
+        //无法判断链接数时保守地删除
+        if (linkCount(file) != 1) {
+            file.delete();
+        }
+    }
+
+    /** FILE的inode的链接数  无法读取时返回-1 */
+    static int linkCount(File file) {
+        try {
+            Object nlink = Files.getAttribute(file.toPath(), "unix:nlink");
+            return nlink instanceof Integer ? (Integer) nlink : -1;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean equalsOrNull(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /** 一次写入的统计信息 */
+    static class Stats {
+        final long files;
+        final long bytes;
+        final long linked;
+        final long cloned;
+        final long nanos;
+
+        Stats(long files, long bytes, long linked, long cloned, long nanos) {
+            this.files = files;
+            this.bytes = bytes;
+            this.linked = linked;
+            this.cloned = cloned;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            double mb = bytes / (1024.0 * 1024.0);
+            return String.format("Checked out %d files (%.1f MB, %d linked, %d cloned) in %.1f ms: %.0f files/s, %.1f MB/s",
+                    files, mb, linked, cloned, nanos / 1e6, files / seconds, mb / seconds);
+        }
+    }
+}
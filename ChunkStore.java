@@ -0,0 +1,378 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static gitlet.Utils.*;
+
+/**
+ * 分块存储的blob
+ *
+ * 大文件按内容定义的分块（FastCDC：gear滚动哈希 + 两级掩码）切成平均CHUNK_AVG字节的块，
+ * 每个块以块内容的SHA-1为ID保存在chunks目录下 内容相同的块只保存一次；
+ * blob本身只保存一个清单（manifest）：第一行为 "chunked 总长度" 之后每行为 "块ID 块长度"。
+ * 块的边界只由附近的内容决定 文件中间的修改只影响附近的一两个块 因此再次add修改过的大文件时只需要写入变化的块。
+ *
+ * blob ID仍然是整个文件内容的SHA-1 与不分块保存时相同：commit、暂存区和stat缓存不需要知道blob是否分块。
+ * 读取时在共享线程池（Workers.forEach）中并行读入各个块 按偏移量拼接（或直接写入目标文件的对应位置）。
+ *
+ * 块和清单先写到chunks/tmp下的临时文件 再原子地重命名为对象文件：中途崩溃不会留下被当作已存在的不完整对象。
+ * tmp的名字不是两位的前缀 fsck和gc列举对象时不会看到其中的文件。
+ */
+class ChunkStore {
+
+    static final int CHUNK_MIN = 16 << 10;
+    static final int CHUNK_AVG = 64 << 10;
+    static final int CHUNK_MAX = 256 << 10;
+    /** 未达到平均长度前使用的掩码（位数多 不容易切分） */
+    private static final long MASK_S = 0xFFFFC00000000000L;
+    /** 超过平均长度后使用的掩码（位数少 容易切分） */
+    private static final long MASK_L = 0xFFFC000000000000L;
+    private static final long[] GEAR = new long[256];
+    /** add时已读入但还没有写出的块数上限 */
+    private static final int MAX_PENDING_CHUNKS = 64;
+    /** 临时文件名的序号 */
+    private static final AtomicLong TEMP_COUNTER = new AtomicLong();
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final File manifestsDir;
+    private final File chunksDir;
+    /** 被重新使用的共享对象的记录（见GarbageCollector.touch） */
+    private final File journal;
+
+    ChunkStore(File manifestsDir, File chunksDir, File journal) {
+        this.manifestsDir = manifestsDir;
+        this.chunksDir = chunksDir;
+        this.journal = journal;
+    }
+
+    /** blob BLOBID的清单文件 */
+    File manifest(String blobID) {
+        return join(manifestsDir, blobID.substring(0, 2), blobID.substring(2));
+    }
+
+    /** 块CHUNKID的文件 */
+    File chunk(String chunkID) {
+        return join(chunksDir, chunkID.substring(0, 2), chunkID.substring(2));
+    }
+
+    /** blob BLOBID是否以分块的形式保存 */
+    boolean contains(String blobID) {
+        return manifest(blobID).isFile();
+    }
+
+    /** 分块保存的blob的总长度 */
+    long size(String blobID) {
+        return Manifest.read(manifest(blobID)).size;
+    }
+
+    /**
+     * 从IN中读取全部内容 分块保存 返回整个内容的SHA-1（blob ID）
+     * 块的哈希和写入在共享线程池（Workers）中进行 内容的SHA-1在读取线程中顺序计算  STATS非空时记录 {块数, 新写入的块数, 新写入的字节数}
+     */
+    String store(InputStream in, long[] stats) throws IOException {
+        MessageDigest whole = digest();
+        Manifest manifest = new Manifest();
+        List<Future<String>> chunkIDs = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        Semaphore pending = new Semaphore(MAX_PENDING_CHUNKS);
+        long[] written = new long[2];
+        try {
+            byte[] buf = new byte[CHUNK_MAX];
+            int len = 0;
+            boolean eof = false;
+            while (true) {
+                while (!eof && len < buf.length) {
+                    int n = in.read(buf, len, buf.length - len);
+                    if (n < 0) {
+                        eof = true;
+                    } else {
+                        len += n;
+                    }
+                }
+                if (len == 0) {
+                    break;
+                }
+                int cut = cut(buf, len);
+                byte[] chunk = new byte[cut];
+                System.arraycopy(buf, 0, chunk, 0, cut);
+                System.arraycopy(buf, cut, buf, 0, len - cut);
+                len -= cut;
+                whole.update(chunk);
+                lengths.add(chunk.length);
+                pending.acquire();
+                chunkIDs.add(Workers.submit(() -> {
+                    try {
+                        return saveChunk(chunk, written);
+                    } finally {
+                        pending.release();
+                    }
+                }));
+            }
+            for (int i = 0; i < chunkIDs.size(); i++) {
+                manifest.add(chunkIDs.get(i).get(), lengths.get(i));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage());
+        } finally {
+            for (Future<String> chunkID : chunkIDs) {
+                chunkID.cancel(true);
+            }
+        }
+        String blobID = hex(whole.digest());
+        File file = manifest(blobID);
+        if (!file.isFile()) {
+            writeAtomically(file, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            //已存在的对象刷新修改时间 避免被并发的gc当作过期的不可达对象删除
+            GarbageCollector.touch(file, blobID, journal);
+        }
+        if (stats != null) {
+            stats[0] = chunkIDs.size();
+            synchronized (written) {
+                stats[1] = written[0];
+                stats[2] = written[1];
+            }
+        }
+        return blobID;
+    }
+
+    /** 分块保存文件FILE的内容 */
+    String store(File file, long[] stats) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), CHUNK_MAX)) {
+            return store(in, stats);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /** 并行读入各个块 拼接成完整的内容（可以在Workers的任务中调用） */
+    byte[] read(String blobID) {
+        Manifest manifest = Manifest.read(manifest(blobID));
+        if (manifest.size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Blob " + blobID + " is too large to read into memory.");
+        }
+        byte[] result = new byte[(int) manifest.size];
+        Workers.forEach(manifest.ids.size(), i -> {
+            byte[] chunk = readChunk(manifest.ids.get(i), manifest.lengths.get(i));
+            System.arraycopy(chunk, 0, result, (int) manifest.offsets.get(i).longValue(), chunk.length);
+        });
+        return result;
+    }
+
+    /** 并行读入各个块 直接写到TARGET中对应的位置（不需要把整个文件读入内存 可以在Workers的任务中调用） 返回写入的字节数 */
+    long writeTo(String blobID, File target) {
+        Manifest manifest = Manifest.read(manifest(blobID));
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Workers.forEach(manifest.ids.size(), i -> {
+                ByteBuffer buffer = ByteBuffer.wrap(readChunk(manifest.ids.get(i), manifest.lengths.get(i)));
+                long position = manifest.offsets.get(i);
+                try {
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(e.getMessage());
+                }
+            });
+            return manifest.size;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /** 按顺序逐块读取写入OUT（内存中只有一个块 用于流式输出） 返回写入的字节数 */
+    long copyTo(String blobID, OutputStream out) throws IOException {
+        Manifest manifest = Manifest.read(manifest(blobID));
+        for (int i = 0; i < manifest.ids.size(); i++) {
+            out.write(readChunk(manifest.ids.get(i), manifest.lengths.get(i)));
+        }
+        return manifest.size;
+    }
+
+    /** 流式计算文件FILE内容的SHA-1（与 sha1(readContents(file)) 相同 但不需要把整个文件读入内存） */
+    static String sha1(File file) {
+        long start = Trace.start();
+        long size = 0;
+        MessageDigest md = digest();
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+                size += n;
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        Trace.record(Trace.Op.SHA1, start, size);
+        return hex(md.digest());
+    }
+
+    /**
+     * 在BUF[0, LEN)中找到第一个块的结束位置
+     * 调用者保证除了文件末尾之外 LEN总是等于CHUNK_MAX
+     */
+    static int cut(byte[] buf, int len) {
+        if (len <= CHUNK_MIN) {
+            return len;
+        }
+        int normal = Math.min(CHUNK_AVG, len);
+        long hash = 0;
+        int i = CHUNK_MIN;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buf[i] & 0xff];
+            if ((hash & MASK_S) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < len; i++) {
+            hash = (hash << 1) + GEAR[buf[i] & 0xff];
+            if ((hash & MASK_L) == 0) {
+                return i + 1;
+            }
+        }
+        return len;
+    }
+
+    private String saveChunk(byte[] chunk, long[] written) {
+        String ID = hex(digest().digest(chunk));
+        File file = chunk(ID);
+        if (!file.isFile()) {
+            writeAtomically(file, chunk);
+            synchronized (written) {
+                written[0]++;
+                written[1] += chunk.length;
+            }
+        } else {
+            GarbageCollector.touch(file, ID, journal);
+        }
+        return ID;
+    }
+
+    /**
+     * 先写到chunks/tmp下的临时文件 再原子地重命名为FILE
+     * 并发写入同一个对象时内容相同 后完成的覆盖先完成的即可
+     */
+    private void writeAtomically(File file, byte[] content) {
+        File tmpDir = join(chunksDir, "tmp");
+        tmpDir.mkdirs();
+        file.getParentFile().mkdirs();
+        File tmp = join(tmpDir, file.getName() + "." + TEMP_COUNTER.incrementAndGet() + "." + System.nanoTime());
+        try {
+            writeContents(tmp, content);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private byte[] readChunk(String chunkID, int length) {
+        File file = chunk(chunkID);
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("Missing chunk " + chunkID);
+        }
+        byte[] chunk = readContents(file);
+        if (chunk.length != length) {
+            throw new IllegalArgumentException("Corrupt chunk " + chunkID);
+        }
+        return chunk;
+    }
+
+    static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        Formatter result = new Formatter();
+        for (byte b : bytes) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+
+    /** blob的块列表 */
+    static class Manifest {
+        private static final String HEADER = "chunked ";
+
+        final List<String> ids = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+        long size;
+
+        void add(String chunkID, int length) {
+            ids.add(chunkID);
+            lengths.add(length);
+            offsets.add(size);
+            size += length;
+        }
+
+        static Manifest read(File file) {
+            String[] lines = new String(readContents(file), StandardCharsets.UTF_8).split("\n");
+            if (lines.length == 0 || !lines[0].startsWith(HEADER)) {
+                throw new IllegalArgumentException("Corrupt manifest " + file.getName());
+            }
+            Manifest manifest = new Manifest();
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].isEmpty()) {
+                    continue;
+                }
+                int space = lines[i].indexOf(' ');
+                manifest.add(lines[i].substring(0, space), Integer.parseInt(lines[i].substring(space + 1)));
+            }
+            if (manifest.size != Long.parseLong(lines[0].substring(HEADER.length()))) {
+                throw new IllegalArgumentException("Corrupt manifest " + file.getName());
+            }
+            return manifest;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(HEADER).append(size).append('\n');
+            for (int i = 0; i < ids.size(); i++) {
+                sb.append(ids.get(i)).append(' ').append(lengths.get(i)).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -1,24 +1,42 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
-import static gitlet.Repository.COMMITS_DIR;
 import static gitlet.Utils.*;
 
 public class Commit implements Serializable {
 
+    /** 固定序列化版本号 避免以后修改本类时已有仓库中的commit对象无法读取 */
+    private static final long serialVersionUID = -9057005107037895610L;
+
+    /**
+     * commit文件中保存的字段  与以前的版本相同：blobs仍然以HashMap<String,String>写入
+     * 因此新旧版本可以互相读取对方写入的commit
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("message", String.class),
+        new ObjectStreamField("date", Date.class),
+        new ObjectStreamField("parents", String[].class),
+        new ObjectStreamField("blobs", HashMap.class),
+    };
+
     private String message;
     private Date date;
     private String[] parents;
 
-    /** filename -- SHA-1哈希值 */
-    private HashMap<String,String> blobs;
+    /** filename -- SHA-1哈希值  内存中为不可变的PathTable */
+    private transient PathTable blobs;
 
     //构造器
     public Commit(Date date,String message, String parent) {
@@ -26,21 +44,21 @@ public class Commit implements Serializable {
         this.parents = new String[2];
         this.parents[0] = parent;
         this.date=date;
-        this.blobs=new HashMap<>();
+        this.blobs=PathTable.EMPTY;
     }
 
-    Commit(Date date,String message,String parent, HashMap<String,String> blobs){
+    Commit(Date date,String message,String parent, Map<String,String> blobs){
         this.message=message;
         this.parents =new String[2];
         this.parents[0] = parent;
         this.date=date;
-        this.blobs=blobs;
+        this.blobs=PathTable.of(blobs);
         }
-    Commit(Date date,String message,String[] parents, HashMap<String,String> blobs){
+    Commit(Date date,String message,String[] parents, Map<String,String> blobs){
         this.date=date;
         this.message=message;
         this.parents=parents!=null?parents:new String[0];
-        this.blobs = blobs;
+        this.blobs = PathTable.of(blobs);
     }
 
     public String getParent(){return parents[0];}
@@ -51,18 +69,25 @@ public class Commit implements Serializable {
 
     public String getMessage(){return message;}
 
+    public Date getDate(){return date;}
+
     public String getFormattedTime(){
+        return formatTime(date);
+    }
+
+    /** log等命令中显示的时间格式 */
+    static String formatTime(Date date){
         DateFormat dateFormat=new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.CHINESE);
         return dateFormat.format(date);
     }
 
-    /** 将commit对象持久化 写入到文件中  文件名为SHA-1值（ID）  */
-    public void save(String ID){
-        File commitPrefix=join(COMMITS_DIR,ID.substring(0,2));
+    /** 将commit对象持久化 写入到COMMITSDIR中的文件  文件名为SHA-1值（ID） */
+    public void save(File commitsDir,String ID){
+        File commitPrefix=join(commitsDir,ID.substring(0,2));
         if(!commitPrefix.exists()){
             commitPrefix.mkdir();
         }
-        writeObject(join(commitPrefix,ID.substring(2)),this);
+        Utils.writeObject(join(commitPrefix,ID.substring(2)),this);
     }
     /**
      * 判断文件是否被追踪
@@ -80,15 +105,35 @@ public class Commit implements Serializable {
         return blobs.get(fileName);
     }
 
-    public HashMap<String, String> getBlobs() {
+    /** 文件名 -- blob ID  按文件名排序 不可修改 */
+    public Map<String, String> getBlobs() {
         return blobs;
     }
 
     public boolean isMergeCommit(){
-        return parents[1] != null;
+        return parents.length > 1 && parents[1] != null;
     }
 
     public String toString(){
         return date.toString() + message + blobs.toString() + parents.toString();
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("message", message);
+        fields.put("date", date);
+        fields.put("parents", parents);
+        fields.put("blobs", blobs.toHashMap());
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        message = (String) fields.get("message", null);
+        date = (Date) fields.get("date", null);
+        parents = (String[]) fields.get("parents", null);
+        HashMap<String, String> map = (HashMap<String, String>) fields.get("blobs", null);
+        blobs = map == null ? PathTable.EMPTY : PathTable.of(map);
+    }
 }
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程中所有仓库共享的commit对象缓存
+ *
+ * commit以其ID为文件名保存 读取后不会再被修改（getBlobs()返回不可变的PathTable），
+ * 因此同一个ID的commit对象可以在命令之间、在不同的仓库之间共享 不需要重复反序列化。
+ * 缓存不代替文件：读取前仍要确认commit文件在当前仓库中存在（见GitletRepository.getCommitBySHA），
+ * 所以一个仓库看不到只在其他仓库中的commit gc删除的commit也不会再被读到。
+ *
+ * 按ID的第一个十六进制位分为16段 每段是一个加锁的LRU（访问顺序的LinkedHashMap） 减少线程间的竞争。
+ * 容量按条目计：每个commit计 文件数+1 条，大仓库中包含大量文件的commit会更早被淘汰。
+ */
+final class CommitCache {
+
+    /** 所有段合计的容量（条目数） */
+    static final long CAPACITY = 1L << 20;
+    private static final int SEGMENTS = 16;
+
+    private static final Segment[] TABLE = new Segment[SEGMENTS];
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            TABLE[i] = new Segment(CAPACITY / SEGMENTS);
+        }
+    }
+
+    private CommitCache() {
+    }
+
+    /** ID对应的缓存的commit  没有时返回null */
+    static Commit get(String ID) {
+        return segment(ID).get(ID);
+    }
+
+    /** 缓存ID对应的COMMIT */
+    static void put(String ID, Commit commit) {
+        segment(ID).put(ID, commit);
+    }
+
+    /** 清空缓存（基准测试中模拟冷缓存） */
+    static void clear() {
+        for (Segment segment : TABLE) {
+            segment.clear();
+        }
+    }
+
+    private static Segment segment(String ID) {
+        return TABLE[Math.max(0, Character.digit(ID.charAt(0), 16))];
+    }
+
+    private static long weight(Commit commit) {
+        return commit.getBlobs() == null ? 1 : commit.getBlobs().size() + 1;
+    }
+
+    private static class Segment {
+        private final long capacity;
+        private final LinkedHashMap<String, Commit> map = new LinkedHashMap<>(64, 0.75f, true);
+        private long size;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void clear() {
+            map.clear();
+            size = 0;
+        }
+
+        synchronized Commit get(String ID) {
+            return map.get(ID);
+        }
+
+        synchronized void put(String ID, Commit commit) {
+            Commit old = map.put(ID, commit);
+            if (old != null) {
+                size -= weight(old);
+            }
+            size += weight(commit);
+            while (size > capacity && map.size() > 1) {
+                Map.Entry<String, Commit> eldest = map.entrySet().iterator().next();
+                size -= weight(eldest.getValue());
+                map.remove(eldest.getKey());
+            }
+        }
+    }
+}
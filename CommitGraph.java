@@ -0,0 +1,656 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static gitlet.Utils.*;
+
+/**
+ * commit图和可达性位图
+ *
+ * commit图（.gitlet/commit-graph）：
+ *   "GCGR" | 每个commit一条记录：20字节ID + int 第一个parent的位置 + int 第二个parent的位置（没有时为-1）
+ * 记录按拓扑顺序排列（parent总在child之前） 记录的下标就是commit的位置。新commit保存时只需在末尾追加一条记录，
+ * 文件不存在或损坏时扫描COMMITS_DIR重建；查询的commit不在图中时（例如由不维护commit图的旧版本gitlet创建）
+ * 读取它和同样不在图中的祖先追加到末尾。遍历历史只需要查两个int数组 不需要反序列化commit对象。
+ *
+ * 可达性位图（.gitlet/commit-bitmaps）：
+ *   "GCBM" | int 位图数 | 每个位图：20字节commit ID + int long的个数 + long[]
+ * 分支最新commit的位图中 第i位表示位置i的commit是否可以从它到达（包括它自己）。
+ * 新commit的位图 = 各个parent的位图之并 + 自己 在commit时增量计算；没有位图的commit从它开始沿parent遍历，
+ * 遇到有位图的commit时直接合并该位图并停止。只保留各分支最新commit的位图。
+ * 于是 是否为祖先 = 查一位；合并基准的候选 = 两个位图的交集；A中有而B中没有的commit数 = andNot后计数。
+ *
+ * 位图使用java.util.BitSet：commit的位置是连续分配的 位图是稠密的 按位存储已经足够紧凑，
+ * 不需要Roaring之类的分段压缩格式（JDK中也没有提供）。
+ *
+ * 修改路径过滤器（.gitlet/commit-bloom）：
+ *   "GCBF" | 按位置顺序 每个commit一条记录：过滤器字节 + int 位置 + int 过滤器长度（修改的文件过多时为-1 没有字节）
+ * 每个commit相对第一个parent修改的文件名的Bloom过滤器（见ChangedPathFilter）。长度和位置放在记录末尾，
+ * 追加时只需读文件最后8字节就知道已有多少条记录。新commit在过滤器完整时追加一条记录；
+ * 文件不存在或缺少记录时（例如旧仓库） 在第一次查询文件历史时补齐。
+ */
+class CommitGraph {
+
+    private static final byte[] GRAPH_MAGIC = {'G', 'C', 'G', 'R'};
+    private static final byte[] BITMAP_MAGIC = {'G', 'C', 'B', 'M'};
+    private static final byte[] BLOOM_MAGIC = {'G', 'C', 'B', 'F'};
+    private static final int ID_BYTES = UID_LENGTH / 2;
+    private static final int RECORD_SIZE = ID_BYTES + 8;
+
+    private final File graphFile;
+    private final File bitmapFile;
+    private final File bloomFile;
+    private final File commitsDir;
+    private final File branchesDir;
+
+    /** 以下在load后有效 */
+    private List<String> IDs;
+    private Map<String, Integer> positions;
+    private int[] firstParents;
+    private int[] secondParents;
+    /** commit位置 -- 该commit的可达性位图 */
+    private Map<Integer, BitSet> bitmaps;
+    private boolean bitmapsDirty;
+    /** 为true时新的位图只保留在内存中 由flush写回（批处理模式） */
+    private boolean deferred;
+    /** 位置 -- 修改路径过滤器（null表示任何文件都可能被修改）  查询文件历史后有效 */
+    private List<byte[]> filters;
+
+    CommitGraph(File graphFile, File bitmapFile, File bloomFile, File commitsDir, File branchesDir) {
+        this.graphFile = graphFile;
+        this.bitmapFile = bitmapFile;
+        this.bloomFile = bloomFile;
+        this.commitsDir = commitsDir;
+        this.branchesDir = branchesDir;
+    }
+
+    /**
+     * 新commit ID保存后调用 在commit图末尾追加一条记录 并由parent的位图得到它的位图，
+     * 已有全部更早commit的过滤器时 追加由CHANGEDPATHS（相对第一个parent修改的文件）建立的过滤器
+     * 图尚未建立时不需要处理（下次使用时会扫描重建）
+     */
+    void add(String ID, String[] parents, Collection<String> changedPaths) {
+        if (!graphFile.exists()) {
+            return;
+        }
+        load();
+        if (positions.containsKey(ID)) {
+            return;
+        }
+        for (int i = 0; parents != null && i < parents.length; i++) {
+            if (parents[i] != null && !positions.containsKey(parents[i]) && !catchUp(parents[i])) {
+                //parent的commit不存在 图已经过期
+                invalidate();
+                return;
+            }
+        }
+        int first = parentPosition(parents, 0);
+        int second = parentPosition(parents, 1);
+        try (OutputStream out = new FileOutputStream(graphFile, true)) {
+            out.write(record(ID, first, second));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        append(ID, first, second);
+        int pos = positions.get(ID);
+        if (filterCount() == pos) {
+            appendFilters(pos, Collections.singletonList(ChangedPathFilter.create(changedPaths)));
+        }
+        reach(pos);
+        saveBitmaps(ID);
+    }
+
+    /** 从HEAD出发沿第一个parent的全部commit 按从新到旧的顺序  只查位置数组 不读取commit对象 */
+    List<String> firstParentChain(String head) {
+        load();
+        List<String> chain = new ArrayList<>();
+        for (int p = position(head); p >= 0; p = firstParents[p]) {
+            chain.add(IDs.get(p));
+        }
+        return chain;
+    }
+
+    /**
+     * 从HEAD出发沿第一个parent 按从新到旧的顺序返回过滤器不能排除修改了PATH的commit（可能有少量误判）
+     * 只查位置数组和过滤器 不读取commit对象。缺少过滤器的commit先由CHANGEDPATHS计算并追加到文件中
+     */
+    List<String> firstParentsTouching(String head, String path, Function<String, Collection<String>> changedPaths) {
+        load();
+        int pos = position(head);
+        loadFilters(changedPaths);
+        List<String> result = new ArrayList<>();
+        for (int p = pos; p >= 0; p = firstParents[p]) {
+            if (ChangedPathFilter.mightContain(filters.get(p), path)) {
+                result.add(IDs.get(p));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从ID出发沿第一个parent 第一个过滤器不能排除修改了PATH的commit（包括ID本身） 都能排除时返回null
+     * ID与返回的commit之间的commit中 PATH的版本都与ID中相同
+     */
+    String firstTouching(String ID, String path, Function<String, Collection<String>> changedPaths) {
+        load();
+        int pos = position(ID);
+        loadFilters(changedPaths);
+        for (int p = pos; p >= 0; p = firstParents[p]) {
+            if (ChangedPathFilter.mightContain(filters.get(p), path)) {
+                return IDs.get(p);
+            }
+        }
+        return null;
+    }
+
+    /** 新仓库中写出空的commit图 */
+    void create() {
+        rebuild();
+        bitmaps = new HashMap<>();
+        bitmapsDirty = false;
+    }
+
+    /** ANCESTOR是否为DESCENDANT的祖先（或同一个commit） */
+    boolean isAncestor(String ancestor, String descendant) {
+        load();
+        int a = position(ancestor);
+        boolean result = reach(position(descendant)).get(a);
+        saveBitmaps(null);
+        return result;
+    }
+
+    /**
+     * A和B的合并基准：两个位图的交集中是候选的公共祖先，
+     * 位置最大的候选不可能是其他候选的祖先（祖先的位置总是更小） 因此就是一个最近的公共祖先
+     * 没有公共祖先时返回null
+     */
+    String mergeBase(String a, String b) {
+        load();
+        BitSet common = (BitSet) reach(position(a)).clone();
+        common.and(reach(position(b)));
+        saveBitmaps(null);
+        return common.isEmpty() ? null : IDs.get(common.length() - 1);
+    }
+
+    /** 可以从A到达 但不能从B到达的commit数 */
+    int countOnlyIn(String a, String b) {
+        load();
+        BitSet only = (BitSet) reach(position(a)).clone();
+        only.andNot(reach(position(b)));
+        saveBitmaps(null);
+        return only.cardinality();
+    }
+
+    /** 删除图和位图  commit被删除（gc）后位置不再有效时调用 */
+    void invalidate() {
+        graphFile.delete();
+        bitmapFile.delete();
+        bloomFile.delete();
+        IDs = null;
+        filters = null;
+    }
+
+    /**
+     * DEFER为true时commit等操作不再每次写回位图文件 只在内存中裁剪 由flush写回
+     * 位图只是缓存：未写回就被丢弃时 下次使用时沿parent重新计算
+     */
+    void setDeferred(boolean defer) {
+        deferred = defer;
+    }
+
+    /** 写回延迟的位图 */
+    void flush() {
+        if (IDs != null && bitmapsDirty) {
+            boolean defer = deferred;
+            deferred = false;
+            try {
+                saveBitmaps(null);
+            } finally {
+                deferred = defer;
+            }
+        }
+    }
+
+    /** 释放内存中的图和位图  下次使用时重新读入 */
+    void close() {
+        IDs = null;
+        positions = null;
+        firstParents = null;
+        secondParents = null;
+        bitmaps = null;
+        filters = null;
+    }
+
+    /**
+     * 从位置POS出发的可达性位图  遇到已有位图的commit时直接合并
+     * 结果记为该commit的位图（只有分支最新的commit的位图会被写回文件）
+     */
+    private BitSet reach(int pos) {
+        BitSet cached = bitmaps.get(pos);
+        if (cached != null) {
+            return cached;
+        }
+        BitSet result = new BitSet(IDs.size());
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(pos);
+        while (!stack.isEmpty()) {
+            int p = stack.pop();
+            if (result.get(p)) {
+                continue;
+            }
+            BitSet bitmap = bitmaps.get(p);
+            if (bitmap != null) {
+                result.or(bitmap);
+                continue;
+            }
+            result.set(p);
+            if (firstParents[p] >= 0) {
+                stack.push(firstParents[p]);
+            }
+            if (secondParents[p] >= 0) {
+                stack.push(secondParents[p]);
+            }
+        }
+        bitmaps.put(pos, result);
+        bitmapsDirty = true;
+        return result;
+    }
+
+    private int position(String ID) {
+        Integer pos = positions.get(ID);
+        if (pos == null) {
+            if (!catchUp(ID)) {
+                throw error("Commit %s is not in the commit graph.", ID);
+            }
+            pos = positions.get(ID);
+        }
+        return pos;
+    }
+
+    /**
+     * 把不在图中的commit ID和它同样不在图中的祖先按拓扑顺序追加到图的末尾  ID的commit不存在时返回false
+     * 已有记录的位置不变 位图仍然有效；新记录没有过滤器 在下次查询文件历史时补齐
+     */
+    private boolean catchUp(String ID) {
+        if (!commitFile(ID).isFile()) {
+            return false;
+        }
+        Map<String, String[]> parents = new HashMap<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(ID);
+        while (!stack.isEmpty()) {
+            String commit = stack.peek();
+            if (!parents.containsKey(commit)) {
+                String[] ps = readObject(commitFile(commit), Commit.class).getParents();
+                parents.put(commit, ps);
+                for (int i = ps == null ? -1 : ps.length - 1; i >= 0; i--) {
+                    //丢失的parent（不应出现）按没有parent处理 与rebuild相同
+                    if (ps[i] != null && !positions.containsKey(ps[i]) && !parents.containsKey(ps[i])
+                            && commitFile(ps[i]).isFile()) {
+                        stack.push(ps[i]);
+                    }
+                }
+            } else {
+                stack.pop();
+                if (!positions.containsKey(commit)) {
+                    String[] ps = parents.get(commit);
+                    int first = Math.max(-1, parentPosition(ps, 0));
+                    int second = Math.max(-1, parentPosition(ps, 1));
+                    records.write(record(commit, first, second), 0, RECORD_SIZE);
+                    append(commit, first, second);
+                }
+            }
+        }
+        try (OutputStream out = new FileOutputStream(graphFile, true)) {
+            records.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        return true;
+    }
+
+    private File commitFile(String ID) {
+        return join(commitsDir, ID.substring(0, 2), ID.substring(2));
+    }
+
+    /** PARENTS[I]的位置  不存在该parent时为-1 parent不在图中时为-2 */
+    private int parentPosition(String[] parents, int i) {
+        if (parents == null || parents.length <= i || parents[i] == null) {
+            return -1;
+        }
+        Integer pos = positions.get(parents[i]);
+        return pos == null ? -2 : pos;
+    }
+
+    /** 读入commit图和位图  图不存在或损坏时重建 */
+    private void load() {
+        if (IDs != null) {
+            return;
+        }
+        if (!graphFile.exists() || !read()) {
+            rebuild();
+        }
+        bitmaps = new HashMap<>();
+        bitmapsDirty = false;
+        if (bitmapFile.exists()) {
+            readBitmaps();
+        }
+    }
+
+    private boolean read() {
+        byte[] data = readContents(graphFile);
+        if (data.length < GRAPH_MAGIC.length
+                || !Arrays.equals(Arrays.copyOf(data, GRAPH_MAGIC.length), GRAPH_MAGIC)
+                || (data.length - GRAPH_MAGIC.length) % RECORD_SIZE != 0) {
+            return false;
+        }
+        int count = (data.length - GRAPH_MAGIC.length) / RECORD_SIZE;
+        reset(count);
+        ByteBuffer buffer = ByteBuffer.wrap(data, GRAPH_MAGIC.length, data.length - GRAPH_MAGIC.length);
+        byte[] raw = new byte[ID_BYTES];
+        for (int i = 0; i < count; i++) {
+            buffer.get(raw);
+            int first = buffer.getInt();
+            int second = buffer.getInt();
+            if (first >= i || second >= i) {
+                return false;
+            }
+            append(toHex(raw), first, second);
+        }
+        return true;
+    }
+
+    /** 扫描COMMITS_DIR 按拓扑顺序写出commit图  旧的位图随之失效 */
+    private void rebuild() {
+        Map<String, String[]> parents = new HashMap<>();
+        String[] commitDirs = commitsDir.list();
+        if (commitDirs != null) {
+            Arrays.sort(commitDirs);
+            List<String> all = new ArrayList<>();
+            for (String commitDir : commitDirs) {
+                List<String> commits = plainFilenamesIn(join(commitsDir, commitDir));
+                if (commits != null) {
+                    for (String commit : commits) {
+                        all.add(commitDir + commit);
+                    }
+                }
+            }
+            List<String[]> loaded = all.parallelStream()
+                    .map(ID -> readObject(commitFile(ID), Commit.class).getParents())
+                    .collect(Collectors.toList());
+            for (int i = 0; i < all.size(); i++) {
+                parents.put(all.get(i), loaded.get(i));
+            }
+        }
+        //后序遍历：所有parent都已编号后再给commit编号
+        reset(parents.size());
+        Set<String> visited = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        for (String root : new TreeSet<>(parents.keySet())) {
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                String ID = stack.peek();
+                if (visited.add(ID)) {
+                    String[] ps = parents.get(ID);
+                    for (int i = ps == null ? -1 : ps.length - 1; i >= 0; i--) {
+                        if (ps[i] != null && parents.containsKey(ps[i]) && !visited.contains(ps[i])) {
+                            stack.push(ps[i]);
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    if (!positions.containsKey(ID)) {
+                        //丢失的parent（不应出现）按没有parent处理
+                        String[] ps = parents.get(ID);
+                        append(ID, Math.max(-1, parentPosition(ps, 0)), Math.max(-1, parentPosition(ps, 1)));
+                    }
+                }
+            }
+        }
+        File tmp = new File(graphFile.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            out.write(GRAPH_MAGIC);
+            for (int i = 0; i < IDs.size(); i++) {
+                out.write(record(IDs.get(i), firstParents[i], secondParents[i]));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        move(tmp, graphFile);
+        bitmapFile.delete();
+        bloomFile.delete();
+        filters = null;
+    }
+
+    private void reset(int capacity) {
+        IDs = new ArrayList<>(capacity);
+        positions = new HashMap<>(capacity * 2);
+        firstParents = new int[Math.max(capacity, 16)];
+        secondParents = new int[Math.max(capacity, 16)];
+    }
+
+    private void append(String ID, int first, int second) {
+        int pos = IDs.size();
+        if (pos == firstParents.length) {
+            firstParents = Arrays.copyOf(firstParents, pos * 2);
+            secondParents = Arrays.copyOf(secondParents, pos * 2);
+        }
+        IDs.add(ID);
+        positions.put(ID, pos);
+        firstParents[pos] = first;
+        secondParents[pos] = second;
+    }
+
+    private void readBitmaps() {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(readContents(bitmapFile)))) {
+            byte[] magic = new byte[BITMAP_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, BITMAP_MAGIC)) {
+                return;
+            }
+            int count = in.readInt();
+            byte[] raw = new byte[ID_BYTES];
+            for (int i = 0; i < count; i++) {
+                in.readFully(raw);
+                long[] words = new long[in.readInt()];
+                for (int k = 0; k < words.length; k++) {
+                    words[k] = in.readLong();
+                }
+                Integer pos = positions.get(toHex(raw));
+                if (pos != null) {
+                    bitmaps.put(pos, BitSet.valueOf(words));
+                }
+            }
+        } catch (IOException e) {
+            //位图只是缓存 损坏时丢弃
+            bitmaps.clear();
+        }
+    }
+
+    /** 有新的位图时写回  只保留各分支最新commit（以及KEEP）的位图 */
+    private void saveBitmaps(String keep) {
+        if (!bitmapsDirty) {
+            return;
+        }
+        Set<Integer> tips = new HashSet<>();
+        List<String> branches = plainFilenamesIn(branchesDir);
+        if (branches != null) {
+            for (String branch : branches) {
+                Integer pos = positions.get(readContentsAsString(join(branchesDir, branch)));
+                if (pos != null) {
+                    tips.add(pos);
+                }
+            }
+        }
+        if (keep != null) {
+            tips.add(positions.get(keep));
+        }
+        bitmaps.keySet().retainAll(tips);
+        if (deferred) {
+            return;
+        }
+        File tmp = new File(bitmapFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(BITMAP_MAGIC);
+            out.writeInt(bitmaps.size());
+            for (Map.Entry<Integer, BitSet> entry : bitmaps.entrySet()) {
+                out.write(toBytes(IDs.get(entry.getKey())));
+                long[] words = entry.getValue().toLongArray();
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        move(tmp, bitmapFile);
+        bitmapsDirty = false;
+    }
+
+    /** 过滤器文件中的记录数  只读取最后一条记录的位置  文件损坏或与图不一致时删除 */
+    private int filterCount() {
+        if (filters != null) {
+            return filters.size();
+        }
+        long length = bloomFile.length();
+        if (length <= BLOOM_MAGIC.length) {
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(bloomFile, "r")) {
+            file.seek(length - 8);
+            int last = file.readInt();
+            if (last >= 0 && last < IDs.size()) {
+                return last + 1;
+            }
+        } catch (IOException e) {
+            //损坏的过滤器文件按不存在处理
+        }
+        bloomFile.delete();
+        return 0;
+    }
+
+    /** 读入全部过滤器 为还没有过滤器的commit计算并追加 */
+    private void loadFilters(Function<String, Collection<String>> changedPaths) {
+        if (filters == null) {
+            filters = readFilters();
+        }
+        int from = filters.size();
+        if (from < IDs.size()) {
+            List<byte[]> added = IntStream.range(from, IDs.size()).parallel()
+                    .mapToObj(p -> ChangedPathFilter.create(changedPaths.apply(IDs.get(p))))
+                    .collect(Collectors.toList());
+            appendFilters(from, added);
+        }
+    }
+
+    /** 从文件末尾向前读取全部记录  文件损坏或与图不一致时删除 返回空表（之后重新计算） */
+    private List<byte[]> readFilters() {
+        int count = filterCount();
+        byte[][] read = new byte[count][];
+        if (count > 0) {
+            byte[] data = readContents(bloomFile);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int end = data.length;
+            for (int pos = count - 1; pos >= 0 && end >= 0; pos--) {
+                int length = end - 8 >= BLOOM_MAGIC.length ? buffer.getInt(end - 4) : -2;
+                int start = end - 8 - Math.max(length, 0);
+                if (length < -1 || start < BLOOM_MAGIC.length || buffer.getInt(end - 8) != pos) {
+                    end = -1;
+                    break;
+                }
+                read[pos] = length < 0 ? null : Arrays.copyOfRange(data, start, start + length);
+                end = start;
+            }
+            if (end != BLOOM_MAGIC.length || !Arrays.equals(Arrays.copyOf(data, BLOOM_MAGIC.length), BLOOM_MAGIC)) {
+                bloomFile.delete();
+                return new ArrayList<>();
+            }
+        }
+        return new ArrayList<>(Arrays.asList(read));
+    }
+
+    /** 在过滤器文件末尾追加位置FROM开始的过滤器（FROM为0时新建文件） */
+    private void appendFilters(int from, List<byte[]> added) {
+        boolean create = from == 0;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(bloomFile, !create)))) {
+            if (create) {
+                out.write(BLOOM_MAGIC);
+            }
+            for (int i = 0; i < added.size(); i++) {
+                byte[] filter = added.get(i);
+                if (filter != null) {
+                    out.write(filter);
+                }
+                out.writeInt(from + i);
+                out.writeInt(filter == null ? -1 : filter.length);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        if (filters != null) {
+            filters.addAll(added);
+        }
+    }
+
+    private static byte[] record(String ID, int first, int second) {
+        return ByteBuffer.allocate(RECORD_SIZE).put(toBytes(ID)).putInt(first).putInt(second).array();
+    }
+
+    private static void move(File from, File to) {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    private static byte[] toBytes(String ID) {
+        byte[] bytes = new byte[ID_BYTES];
+        for (int k = 0; k < ID_BYTES; k++) {
+            bytes[k] = (byte) Integer.parseInt(ID.substring(2 * k, 2 * k + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String toHex(byte[] raw) {
+        char[] hex = new char[UID_LENGTH];
+        for (int k = 0; k < ID_BYTES; k++) {
+            int b = raw[k] & 0xff;
+            hex[2 * k] = Character.forDigit(b >>> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,271 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/**
+ * commit ID 索引  用于解析缩写的commit ID
+ *
+ * 文件格式（.gitlet/commit-index）：
+ *   "GCIX" | int sortedCount | sortedCount个已排序的20字节ID | 追加的未排序ID...
+ * 新commit保存时只需在文件末尾追加20字节（add），查找时对已排序部分做二分查找 再线性扫描末尾的少量未排序ID，
+ * 未排序部分超过COMPACT_THRESHOLD时重新排序写回。索引文件不存在时扫描COMMITS_DIR重建，
+ * 没有匹配但COMMITS_DIR中存在匹配的commit时（索引过期）同样重建；
+ * 索引文件损坏（头部错误、被截断或长度不是整数个ID）时也扫描重建。
+ * 读取通过内存映射完成 不需要把整个索引读入堆中。
+ */
+class CommitIndex {
+
+    private static final byte[] MAGIC = {'G', 'C', 'I', 'X'};
+    private static final int HEADER_SIZE = 8;
+    private static final int ID_BYTES = UID_LENGTH / 2;
+    /** 未排序的追加部分超过这个数量时 在下一次读取时重新排序 */
+    private static final int COMPACT_THRESHOLD = 256;
+
+    private final File indexFile;
+    private final File commitsDir;
+
+    private ByteBuffer buffer;
+    private int sortedCount;
+    private int totalCount;
+
+    CommitIndex(File indexFile, File commitsDir) {
+        this.indexFile = indexFile;
+        this.commitsDir = commitsDir;
+    }
+
+    /** 新commit保存后调用 将其ID追加到索引末尾  索引尚未建立时不需要处理（下次读取时会扫描重建） */
+    void add(String ID) {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(indexFile, true)) {
+            out.write(toBytes(ID));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        buffer = null;
+    }
+
+    /**
+     * 将唯一匹配PREFIX的commit ID展开为完整的40位ID
+     * 没有匹配时返回null 匹配多个时抛出GitletException
+     */
+    String resolve(String prefix) {
+        String match = lookup(prefix);
+        if (match == null && unindexed(prefix)) {
+            //索引过期（例如commit由不维护索引的旧版本gitlet创建） 重建后再查找
+            rebuild();
+            match = lookup(prefix);
+        }
+        return match;
+    }
+
+    private String lookup(String prefix) {
+        load();
+        String match = null;
+        int i = lowerBound(prefix);
+        for (; i < sortedCount && idAt(i).startsWith(prefix); i++) {
+            if (match != null) {
+                throw error("Multiple commits match the given prefix. Please provide a more specific ID.");
+            }
+            match = idAt(i);
+        }
+        for (i = sortedCount; i < totalCount; i++) {
+            String ID = idAt(i);
+            if (ID.startsWith(prefix) && !ID.equals(match)) {
+                if (match != null) {
+                    throw error("Multiple commits match the given prefix. Please provide a more specific ID.");
+                }
+                match = ID;
+            }
+        }
+        return match;
+    }
+
+    /** COMMITS_DIR中是否有匹配PREFIX的commit  只在索引中没有匹配时调用 只列出一个子目录 */
+    private boolean unindexed(String prefix) {
+        List<String> commits = plainFilenamesIn(join(commitsDir, prefix.substring(0, 2)));
+        if (commits != null) {
+            for (String commit : commits) {
+                if (commit.startsWith(prefix.substring(2))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** 返回能唯一确定ID的最短前缀  长度不小于MINLENGTH */
+    String abbreviate(String ID, int minLength) {
+        load();
+        int common = 0;
+        int i = lowerBound(ID);
+        if (i > 0) {
+            common = Math.max(common, commonPrefix(ID, idAt(i - 1)));
+        }
+        for (int j = i; j <= i + 1 && j < sortedCount; j++) {
+            if (!idAt(j).equals(ID)) {
+                common = Math.max(common, commonPrefix(ID, idAt(j)));
+            }
+        }
+        for (int j = sortedCount; j < totalCount; j++) {
+            String other = idAt(j);
+            if (!other.equals(ID)) {
+                common = Math.max(common, commonPrefix(ID, other));
+            }
+        }
+        return ID.substring(0, Math.min(UID_LENGTH, Math.max(minLength, common + 1)));
+    }
+
+    /** 释放映射的索引  下次查找时重新映射 */
+    void close() {
+        buffer = null;
+    }
+
+    /** 扫描COMMITS_DIR下所有commit 重新生成排序后的索引文件 */
+    void rebuild() {
+        List<String> IDs = new ArrayList<>();
+        String[] commitDirs = commitsDir.list();
+        if (commitDirs != null) {
+            for (String commitDir : commitDirs) {
+                //跳过不是commit子目录的文件（plainFilenamesIn对普通文件返回null）
+                List<String> commits = plainFilenamesIn(join(commitsDir, commitDir));
+                if (commitDir.length() != 2 || commits == null) {
+                    continue;
+                }
+                for (String commit : commits) {
+                    if (commit.length() == UID_LENGTH - 2) {
+                        IDs.add(commitDir + commit);
+                    }
+                }
+            }
+        }
+        write(IDs);
+    }
+
+    /** 映射索引文件  不存在或损坏时重建 未排序部分过多时重新排序 */
+    private void load() {
+        if (buffer != null) {
+            return;
+        }
+        if (!indexFile.exists() || !map()) {
+            rebuild();
+            if (!map()) {
+                throw new IllegalArgumentException("corrupt commit index");
+            }
+        }
+        if (totalCount - sortedCount > COMPACT_THRESHOLD) {
+            List<String> IDs = new ArrayList<>(totalCount);
+            for (int i = 0; i < totalCount; i++) {
+                IDs.add(idAt(i));
+            }
+            write(IDs);
+            map();
+        }
+    }
+
+    /** 映射索引文件并检查头部和长度  文件损坏时返回false */
+    private boolean map() {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || (size - HEADER_SIZE) % ID_BYTES != 0) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[MAGIC.length];
+            mapped.get(magic);
+            int sorted = mapped.getInt();
+            int total = (int) ((size - HEADER_SIZE) / ID_BYTES);
+            if (!Arrays.equals(magic, MAGIC) || sorted < 0 || sorted > total) {
+                return false;
+            }
+            sortedCount = sorted;
+            totalCount = total;
+            buffer = mapped;
+            return true;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /** 排序去重后写入临时文件 再原子地替换索引文件 */
+    private void write(List<String> IDs) {
+        String[] sorted = IDs.stream().distinct().sorted().toArray(String[]::new);
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(MAGIC);
+            out.writeInt(sorted.length);
+            for (String ID : sorted) {
+                out.write(toBytes(ID));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        buffer = null;
+    }
+
+    /** 在已排序部分中二分查找第一个不小于KEY的位置 */
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = sortedCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (idAt(mid).compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private String idAt(int i) {
+        int offset = HEADER_SIZE + i * ID_BYTES;
+        char[] hex = new char[UID_LENGTH];
+        for (int k = 0; k < ID_BYTES; k++) {
+            int b = buffer.get(offset + k) & 0xff;
+            hex[2 * k] = Character.forDigit(b >>> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    private static byte[] toBytes(String ID) {
+        byte[] bytes = new byte[ID_BYTES];
+        for (int k = 0; k < ID_BYTES; k++) {
+            bytes[k] = (byte) Integer.parseInt(ID.substring(2 * k, 2 * k + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = 0;
+        while (n < a.length() && n < b.length() && a.charAt(n) == b.charAt(n)) {
+            n++;
+        }
+        return n;
+    }
+}
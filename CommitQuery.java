@@ -0,0 +1,124 @@
+package gitlet;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * find 命令的查询条件
+ * 用法: find [--regex] [--or] [--since <date>] [--until <date>] <term>...
+ *  --regex  每个term按正则表达式匹配message（默认为子串匹配）
+ *  --or     任一term匹配即可（默认所有term都需匹配）
+ *  --since / --until  按提交时间过滤 日期格式为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
+ * 对象创建后不可变 可以在并行流中安全共享
+ */
+class CommitQuery {
+
+    private final List<Pattern> patterns;
+    private final List<String> terms;
+    private final boolean anyTerm;
+    private final Date since;
+    private final Date until;
+
+    private CommitQuery(List<String> terms, List<Pattern> patterns, boolean anyTerm, Date since, Date until) {
+        this.terms = terms;
+        this.patterns = patterns;
+        this.anyTerm = anyTerm;
+        this.since = since;
+        this.until = until;
+    }
+
+    /**
+     * 解析find命令的参数（不包括命令名本身）
+     * 参数不合法时抛出GitletException 其message即为要打印的错误信息
+     */
+    static CommitQuery parse(String[] args) {
+        boolean regex = false;
+        boolean anyTerm = false;
+        Date since = null;
+        Date until = null;
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--regex":
+                    regex = true;
+                    break;
+                case "--or":
+                    anyTerm = true;
+                    break;
+                case "--and":
+                    anyTerm = false;
+                    break;
+                case "--since":
+                case "--until":
+                    if (i + 1 >= args.length) {
+                        throw Utils.error("Incorrect operands.");
+                    }
+                    if (args[i].equals("--since")) {
+                        since = parseDate(args[++i], false);
+                    } else {
+                        until = parseDate(args[++i], true);
+                    }
+                    break;
+                default:
+                    terms.add(args[i]);
+            }
+        }
+        if (terms.isEmpty() && since == null && until == null) {
+            throw Utils.error("Incorrect operands.");
+        }
+        List<Pattern> patterns = null;
+        if (regex) {
+            patterns = new ArrayList<>();
+            try {
+                for (String term : terms) {
+                    patterns.add(Pattern.compile(term));
+                }
+            } catch (PatternSyntaxException e) {
+                throw Utils.error("Invalid regular expression: %s", e.getPattern());
+            }
+        }
+        return new CommitQuery(terms, patterns, anyTerm, since, until);
+    }
+
+    /** 只给出日期时 ENDOFDAY为true则取当天的最后一毫秒 使 --until 包含当天的全部提交 */
+    private static Date parseDate(String text, boolean endOfDay) {
+        try {
+            if (text.length() == "yyyy-MM-dd".length()) {
+                Date day = new SimpleDateFormat("yyyy-MM-dd").parse(text);
+                return endOfDay ? new Date(day.getTime() + 24L * 60 * 60 * 1000 - 1) : day;
+            }
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(text);
+        } catch (ParseException e) {
+            throw Utils.error("Invalid date: %s", text);
+        }
+    }
+
+    /** 判断commit是否满足查询条件 */
+    boolean matches(Commit commit) {
+        Date date = commit.getDate();
+        if (since != null && date.before(since)) {
+            return false;
+        }
+        if (until != null && date.after(until)) {
+            return false;
+        }
+        if (terms.isEmpty()) {
+            return true;
+        }
+        String message = commit.getMessage();
+        for (int i = 0; i < terms.size(); i++) {
+            boolean hit = patterns != null
+                    ? patterns.get(i).matcher(message).find()
+                    : message.contains(terms.get(i));
+            if (hit == anyTerm) {
+                return hit;
+            }
+        }
+        return !anyTerm;
+    }
+}
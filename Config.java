@@ -0,0 +1,78 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * 仓库配置  以 key=value 的形式保存在 .gitlet/config 中
+ * 目前支持的配置项：
+ *  checkout.mode      copy（默认）或 link：checkout时用硬链接从对象库取出文件
+ *  rename.threshold   重命名检测的相似度阈值（百分比 默认50） 大于100时只检测内容完全相同的重命名
+ *  chunk.threshold    不小于此大小（字节）的文件分块保存（见ChunkStore） 默认0即不分块
+ *  gc.grace           gc只删除早于此时间（秒）写入的不可达对象 默认两周
+ */
+class Config {
+
+    private final File configFile;
+    private final Properties properties = new Properties();
+
+    private Config(File configFile) {
+        this.configFile = configFile;
+    }
+
+    /** 读取配置文件 不存在时返回空配置 */
+    static Config load(File configFile) {
+        Config config = new Config(configFile);
+        if (configFile.exists()) {
+            try (InputStream in = new FileInputStream(configFile)) {
+                config.properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+        return config;
+    }
+
+    String get(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw Utils.error("Invalid value for %s: %s", key, value);
+        }
+    }
+
+    /** 按key排序的所有配置项 */
+    TreeSet<String> keys() {
+        return new TreeSet<>(properties.stringPropertyNames());
+    }
+
+    void set(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    void unset(String key) {
+        properties.remove(key);
+    }
+
+    void save() {
+        try (OutputStream out = new FileOutputStream(configFile)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 行级别的三路合并（diff3）
+ *
+ * 分别计算 base->ours 和 base->theirs 的diff，按在base中的位置把两边的修改排在一起，
+ * 在base中重叠或相邻的修改归为同一组：
+ *  只有一边修改的组直接取该边的内容，两边修改结果相同的组取任一边，
+ *  其余的组才是冲突 只把这一小段用冲突标记括起来。两组之间的行两边都没有修改 原样取base。
+ * 结果直接写入输出流 不在内存中拼接整个文件。
+ */
+class ContentMerge {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private ContentMerge() {
+    }
+
+    /**
+     * 合并三个版本的内容并写入OUT  BASE为null时视为空文件（两边都新增的文件）
+     * 冲突块使用 "<<<<<<< OURSLABEL" / "=======" / ">>>>>>> THEIRSLABEL" 标记
+     * 返回冲突块的数量 0表示自动合并成功
+     */
+    static int merge(byte[] base, byte[] ours, byte[] theirs,
+                     String oursLabel, String theirsLabel, OutputStream out) throws IOException {
+        Diff.Lines o = Diff.Lines.split(base == null ? new byte[0] : base);
+        Diff.Lines a = Diff.Lines.split(ours);
+        Diff.Lines b = Diff.Lines.split(theirs);
+        int[][] seqs = Diff.intern(o, a, b);
+        List<Diff.Edit> oursEdits = Diff.diff(seqs[0], seqs[1]);
+        List<Diff.Edit> theirsEdits = Diff.diff(seqs[0], seqs[2]);
+
+        int conflicts = 0;
+        int basePos = 0;
+        //两边在当前位置之前累计的行数变化  用于把base中的位置换算到ours/theirs中
+        int oursDelta = 0;
+        int theirsDelta = 0;
+        int i = 0;
+        int j = 0;
+        while (i < oursEdits.size() || j < theirsEdits.size()) {
+            //取出在base中位置最靠前的修改作为一组的开始 再把与该组重叠或相邻的修改都加进来
+            int lo;
+            int hi;
+            if (j >= theirsEdits.size()
+                    || (i < oursEdits.size() && oursEdits.get(i).aStart <= theirsEdits.get(j).aStart)) {
+                lo = oursEdits.get(i).aStart;
+                hi = oursEdits.get(i).aEnd;
+            } else {
+                lo = theirsEdits.get(j).aStart;
+                hi = theirsEdits.get(j).aEnd;
+            }
+            int oursEnd = i;
+            int theirsEnd = j;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (oursEnd < oursEdits.size() && oursEdits.get(oursEnd).aStart <= hi) {
+                    hi = Math.max(hi, oursEdits.get(oursEnd).aEnd);
+                    oursEnd++;
+                    grown = true;
+                }
+                if (theirsEnd < theirsEdits.size() && theirsEdits.get(theirsEnd).aStart <= hi) {
+                    hi = Math.max(hi, theirsEdits.get(theirsEnd).aEnd);
+                    theirsEnd++;
+                    grown = true;
+                }
+            }
+
+            //两边都没有修改的部分
+            o.writeTo(out, basePos, lo);
+
+            int oursGrowth = growth(oursEdits, i, oursEnd);
+            int theirsGrowth = growth(theirsEdits, j, theirsEnd);
+            int aLo = lo + oursDelta;
+            int aHi = hi + oursDelta + oursGrowth;
+            int bLo = lo + theirsDelta;
+            int bHi = hi + theirsDelta + theirsGrowth;
+
+            if (theirsEnd == j) {
+                a.writeTo(out, aLo, aHi);
+            } else if (oursEnd == i || sameLines(seqs[1], aLo, aHi, seqs[2], bLo, bHi)) {
+                b.writeTo(out, bLo, bHi);
+            } else {
+                conflicts++;
+                writeMarker(out, "<<<<<<< " + oursLabel);
+                writeSection(out, a, aLo, aHi);
+                writeMarker(out, "=======");
+                writeSection(out, b, bLo, bHi);
+                writeMarker(out, ">>>>>>> " + theirsLabel);
+            }
+
+            oursDelta += oursGrowth;
+            theirsDelta += theirsGrowth;
+            basePos = hi;
+            i = oursEnd;
+            j = theirsEnd;
+        }
+        o.writeTo(out, basePos, o.size());
+        return conflicts;
+    }
+
+    /** 判断内容是否像二进制文件（前8000个字节中含有0） 二进制文件不做行级合并 */
+    static boolean isBinary(byte[] content) {
+        int n = Math.min(content.length, 8000);
+        for (int k = 0; k < n; k++) {
+            if (content[k] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** edits[from, to)使文件增加的行数 */
+    private static int growth(List<Diff.Edit> edits, int from, int to) {
+        int n = 0;
+        for (int k = from; k < to; k++) {
+            Diff.Edit e = edits.get(k);
+            n += (e.bEnd - e.bStart) - (e.aEnd - e.aStart);
+        }
+        return n;
+    }
+
+    private static boolean sameLines(int[] x, int xLo, int xHi, int[] y, int yLo, int yHi) {
+        if (xHi - xLo != yHi - yLo) {
+            return false;
+        }
+        for (int k = 0; k < xHi - xLo; k++) {
+            if (x[xLo + k] != y[yLo + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 写出冲突块中的一段  保证以换行结尾 使后面的冲突标记独占一行 */
+    private static void writeSection(OutputStream out, Diff.Lines lines, int from, int to) throws IOException {
+        lines.writeTo(out, from, to);
+        if (from < to && lines.end(to - 1) == lines.data.length && !lines.endsWithNewline()) {
+            out.write(NEWLINE);
+        }
+    }
+
+    private static void writeMarker(OutputStream out, String marker) throws IOException {
+        out.write(marker.getBytes(StandardCharsets.UTF_8));
+        out.write(NEWLINE);
+    }
+}
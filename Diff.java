@@ -0,0 +1,287 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 行级别的diff
+ *
+ * 文件按 '\n' 切分成行（Lines 只记录每行的起始偏移 不复制内容），
+ * 再把内容相同的行映射为同一个整数（intern），之后只比较整数序列。
+ * diff使用Myers算法的线性空间版本：先去掉公共的前缀和后缀，然后在编辑图中同时从两端搜索找到middle snake，
+ * 以它为界递归处理两侧  每层只需要O(N+M)的额外空间。
+ */
+class Diff {
+
+    /** 一处修改：a中的[aStart, aEnd)被替换为b中的[bStart, bEnd)  两个区间都可以为空 */
+    static class Edit {
+        final int aStart;
+        final int aEnd;
+        final int bStart;
+        final int bEnd;
+
+        Edit(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + aStart + "," + aEnd + ")->[" + bStart + "," + bEnd + ")";
+        }
+    }
+
+    /** 按行切分的文件内容 */
+    static class Lines {
+        final byte[] data;
+        /** 第i行为data[starts[i], starts[i+1])  包括行尾的'\n' */
+        private final int[] starts;
+        private final int count;
+
+        private Lines(byte[] data, int[] starts, int count) {
+            this.data = data;
+            this.starts = starts;
+            this.count = count;
+        }
+
+        static Lines split(byte[] data) {
+            int[] starts = new int[16];
+            int count = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                if (count + 1 >= starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[count++] = pos;
+                while (pos < data.length && data[pos] != '\n') {
+                    pos++;
+                }
+                if (pos < data.length) {
+                    pos++;
+                }
+            }
+            starts[count] = data.length;
+            return new Lines(data, starts, count);
+        }
+
+        int size() {
+            return count;
+        }
+
+        int start(int line) {
+            return starts[line];
+        }
+
+        int end(int line) {
+            return starts[line + 1];
+        }
+
+        /** 最后一行是否以'\n'结尾（没有内容时视为true） */
+        boolean endsWithNewline() {
+            return data.length == 0 || data[data.length - 1] == '\n';
+        }
+
+        /** 将[from, to)行原样写出 */
+        void writeTo(OutputStream out, int from, int to) throws IOException {
+            if (from < to) {
+                out.write(data, starts[from], starts[to] - starts[from]);
+            }
+        }
+    }
+
+    /** 将几个文件中的行映射为整数 内容相同的行（包括不同文件之间）得到相同的整数 */
+    static int[][] intern(Lines... files) {
+        HashMap<LineKey, Integer> ids = new HashMap<>();
+        int[][] result = new int[files.length][];
+        for (int f = 0; f < files.length; f++) {
+            Lines lines = files[f];
+            int[] seq = new int[lines.size()];
+            for (int i = 0; i < seq.length; i++) {
+                LineKey key = new LineKey(lines.data, lines.start(i), lines.end(i));
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(key, id);
+                }
+                seq[i] = id;
+            }
+            result[f] = seq;
+        }
+        return result;
+    }
+
+    /** 对两个整数序列做diff 返回按位置排序的修改列表（相邻的修改已经合并） */
+    static List<Edit> diff(int[] a, int[] b) {
+        List<Edit> edits = new ArrayList<>();
+        diff(a, 0, a.length, b, 0, b.length, edits);
+        return edits;
+    }
+
+    private static void diff(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi, List<Edit> edits) {
+        //去掉公共前缀和后缀
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            if (aLo < aHi || bLo < bHi) {
+                addEdit(edits, aLo, aHi, bLo, bHi);
+            }
+            return;
+        }
+        int[] split = middleSnake(a, aLo, aHi, b, bLo, bHi);
+        if (split == null) {
+            addEdit(edits, aLo, aHi, bLo, bHi);
+            return;
+        }
+        diff(a, aLo, split[0], b, bLo, split[1], edits);
+        diff(a, split[0], aHi, b, split[1], bHi, edits);
+    }
+
+    /**
+     * 在a[aLo,aHi)与b[bLo,bHi)的编辑图中 从左上角和右下角同时搜索
+     * 两个方向的路径相遇时返回相遇点(x, y)  两个序列没有任何公共元素时返回null
+     */
+    private static int[] middleSnake(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] vf = new int[length];
+        int[] vb = new int[length];
+        Arrays.fill(vf, -1);
+        Arrays.fill(vb, -1);
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta & 1) != 0;
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            //正向
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && vf[k1Offset - 1] < vf[k1Offset + 1])) {
+                    x1 = vf[k1Offset + 1];
+                } else {
+                    x1 = vf[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aLo + x1] == b[bLo + y1]) {
+                    x1++;
+                    y1++;
+                }
+                vf[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && vb[k2Offset] != -1) {
+                        if (x1 >= n - vb[k2Offset]) {
+                            return new int[]{aLo + x1, bLo + y1};
+                        }
+                    }
+                }
+            }
+            //反向
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && vb[k2Offset - 1] < vb[k2Offset + 1])) {
+                    x2 = vb[k2Offset + 1];
+                } else {
+                    x2 = vb[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aHi - x2 - 1] == b[bHi - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                vb[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && vf[k1Offset] != -1) {
+                        int x1 = vf[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return new int[]{aLo + x1, bLo + y1};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void addEdit(List<Edit> edits, int aStart, int aEnd, int bStart, int bEnd) {
+        if (!edits.isEmpty()) {
+            Edit last = edits.get(edits.size() - 1);
+            if (last.aEnd == aStart && last.bEnd == bStart) {
+                edits.set(edits.size() - 1, new Edit(last.aStart, aEnd, last.bStart, bEnd));
+                return;
+            }
+        }
+        edits.add(new Edit(aStart, aEnd, bStart, bEnd));
+    }
+
+    /** 一行内容的引用  用于intern时作为HashMap的key */
+    private static class LineKey {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private final int hash;
+
+        LineKey(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            int h = 1;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + data[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LineKey)) {
+                return false;
+            }
+            LineKey other = (LineKey) o;
+            if (other.hash != hash || other.end - other.start != end - start) {
+                return false;
+            }
+            for (int i = 0; i < end - start; i++) {
+                if (data[start + i] != other.data[other.start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
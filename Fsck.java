@@ -0,0 +1,253 @@
+package gitlet;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static gitlet.Utils.*;
+
+/**
+ * 检查对象库的完整性
+ *
+ * 1. 分块保存的blob：按顺序读取清单中的每个块 同时校验块的SHA-1和整个内容的SHA-1
+ * 2. 其余的块和原始blob：流式重新计算SHA-1 与文件名比较
+ * 3. commit：反序列化 检查parent和引用的blob是否存在
+ *    （commit ID包含parents数组的toString() 即对象的identity hash 无法重新计算 因此commit只做结构检查）
+ * 所有对象在并行流中检查 每个任务只使用固定大小的缓冲区（块最多CHUNK_MAX字节） 内存占用与对象大小无关。
+ *
+ * 与gc相同 每类对象按排序后的ID列表编号 用BitSet记录哪些对象被引用：
+ * 没有被任何commit、暂存区、分支或清单引用的对象报告为dangling。
+ */
+class Fsck {
+
+    private final File commitsDir;
+    private final File blobsDir;
+    private final File manifestsDir;
+    private final File chunksDir;
+
+    Fsck(File commitsDir, File blobsDir, File manifestsDir, File chunksDir) {
+        this.commitsDir = commitsDir;
+        this.blobsDir = blobsDir;
+        this.manifestsDir = manifestsDir;
+        this.chunksDir = chunksDir;
+    }
+
+    /**
+     * 检查所有对象  REFS为 引用名--commit ID（分支、MERGE_HEAD） ROOTBLOBS为暂存区中的blob
+     * 返回所有问题（按类型和ID排序）以及统计信息
+     */
+    Report check(Map<String, String> refs, List<String> rootBlobs) {
+        long start = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+        String[] commits = GarbageCollector.list(commitsDir);
+        String[] blobs = GarbageCollector.list(blobsDir);
+        String[] manifests = GarbageCollector.list(manifestsDir);
+        String[] chunks = GarbageCollector.list(chunksDir);
+        Report report = new Report();
+
+        //1. 清单：逐块校验
+        List<ManifestResult> manifestResults = IntStream.range(0, manifests.length).parallel()
+                .mapToObj(i -> checkManifest(manifests[i], chunks, bytes))
+                .collect(Collectors.toList());
+        BitSet chunkRefs = new BitSet(chunks.length);
+        BitSet chunkVerified = new BitSet(chunks.length);
+        for (ManifestResult result : manifestResults) {
+            report.problems.addAll(result.problems);
+            for (int i : result.referenced) {
+                chunkRefs.set(i);
+            }
+            for (int i : result.verified) {
+                chunkVerified.set(i);
+            }
+        }
+
+        //2. 没有被校验过的块和所有原始blob
+        report.problems.addAll(IntStream.range(0, chunks.length).parallel()
+                .filter(i -> !chunkVerified.get(i))
+                .mapToObj(i -> checkHash("chunk", file(chunksDir, chunks[i]), chunks[i], bytes))
+                .filter(problem -> problem != null)
+                .collect(Collectors.toList()));
+        report.problems.addAll(IntStream.range(0, blobs.length).parallel()
+                .mapToObj(i -> checkHash("blob", file(blobsDir, blobs[i]), blobs[i], bytes))
+                .filter(problem -> problem != null)
+                .collect(Collectors.toList()));
+
+        //3. commit
+        List<String[][]> commitLinks = IntStream.range(0, commits.length).parallel()
+                .mapToObj(i -> {
+                    File file = file(commitsDir, commits[i]);
+                    bytes.addAndGet(file.length());
+                    try {
+                        Commit commit = readObject(file, Commit.class);
+                        String[] parents = commit.getParents() == null ? new String[0] : commit.getParents();
+                        String[] blobIDs = commit.getBlobs() == null ? null
+                                : commit.getBlobs().values().toArray(new String[0]);
+                        return new String[][]{parents, blobIDs};
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                })
+                .collect(Collectors.toList());
+        BitSet commitRefs = new BitSet(commits.length);
+        BitSet blobRefs = new BitSet(blobs.length);
+        BitSet manifestRefs = new BitSet(manifests.length);
+        for (int i = 0; i < commits.length; i++) {
+            String[][] links = commitLinks.get(i);
+            if (links == null || links[1] == null) {
+                report.problems.add("corrupt commit " + commits[i] + ": cannot be deserialized");
+                continue;
+            }
+            for (String parent : links[0]) {
+                if (parent != null && !refer(commits, commitRefs, parent)) {
+                    report.problems.add("missing commit " + parent + " (parent of commit " + commits[i] + ")");
+                }
+            }
+            for (String blob : links[1]) {
+                if (!referBlob(blobs, blobRefs, manifests, manifestRefs, blob)) {
+                    report.problems.add("missing blob " + blob + " (in commit " + commits[i] + ")");
+                }
+            }
+        }
+        for (Map.Entry<String, String> ref : refs.entrySet()) {
+            if (!refer(commits, commitRefs, ref.getValue())) {
+                report.problems.add("missing commit " + ref.getValue() + " (" + ref.getKey() + ")");
+            }
+        }
+        for (String blob : rootBlobs) {
+            if (!referBlob(blobs, blobRefs, manifests, manifestRefs, blob)) {
+                report.problems.add("missing blob " + blob + " (in the staging area)");
+            }
+        }
+
+        //4. 没有被引用的对象
+        dangling(report, "commit", commits, commitRefs);
+        dangling(report, "blob", blobs, blobRefs);
+        dangling(report, "blob", manifests, manifestRefs);
+        dangling(report, "chunk", chunks, chunkRefs);
+
+        Collections.sort(report.problems);
+        report.objects = commits.length + blobs.length + manifests.length + chunks.length;
+        report.bytes = bytes.get();
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /** 读取清单引用的每个块 同时校验块的SHA-1和整个内容的SHA-1 */
+    private ManifestResult checkManifest(String blobID, String[] chunks, AtomicLong bytes) {
+        ManifestResult result = new ManifestResult();
+        File file = file(manifestsDir, blobID);
+        ChunkStore.Manifest manifest;
+        try {
+            manifest = ChunkStore.Manifest.read(file);
+        } catch (IllegalArgumentException e) {
+            result.problems.add("corrupt blob " + blobID + ": unreadable chunk list");
+            return result;
+        }
+        bytes.addAndGet(file.length());
+        MessageDigest whole = ChunkStore.digest();
+        boolean complete = true;
+        for (int k = 0; k < manifest.ids.size(); k++) {
+            String chunkID = manifest.ids.get(k);
+            int i = Arrays.binarySearch(chunks, chunkID);
+            if (i < 0) {
+                result.problems.add("missing chunk " + chunkID + " (in blob " + blobID + ")");
+                complete = false;
+                continue;
+            }
+            result.referenced.add(i);
+            byte[] chunk = readContents(file(chunksDir, chunkID));
+            bytes.addAndGet(chunk.length);
+            whole.update(chunk);
+            if (ChunkStore.hex(ChunkStore.digest().digest(chunk)).equals(chunkID)) {
+                result.verified.add(i);
+            } else {
+                //留给第2步报告
+                complete = false;
+            }
+            if (chunk.length != manifest.lengths.get(k)) {
+                result.problems.add("corrupt blob " + blobID + ": chunk " + chunkID + " has the wrong length");
+                complete = false;
+            }
+        }
+        if (complete && !ChunkStore.hex(whole.digest()).equals(blobID)) {
+            result.problems.add("corrupt blob " + blobID + ": hash mismatch");
+        }
+        return result;
+    }
+
+    /** 流式计算FILE的SHA-1并与ID比较  一致时返回null */
+    private static String checkHash(String kind, File file, String ID, AtomicLong bytes) {
+        bytes.addAndGet(file.length());
+        try {
+            if (!ChunkStore.sha1(file).equals(ID)) {
+                return "corrupt " + kind + " " + ID + ": hash mismatch";
+            }
+        } catch (IllegalArgumentException e) {
+            return "corrupt " + kind + " " + ID + ": " + e.getMessage();
+        }
+        return null;
+    }
+
+    private static void dangling(Report report, String kind, String[] IDs, BitSet refs) {
+        for (int i = refs.nextClearBit(0); i < IDs.length; i = refs.nextClearBit(i + 1)) {
+            report.problems.add("dangling " + kind + " " + IDs[i]);
+        }
+    }
+
+    /** 在BitSet中记录对ID的引用  ID不存在时返回false */
+    private static boolean refer(String[] IDs, BitSet refs, String ID) {
+        int i = Arrays.binarySearch(IDs, ID);
+        if (i < 0) {
+            return false;
+        }
+        refs.set(i);
+        return true;
+    }
+
+    /** blob可能以原始内容或清单的形式保存 */
+    private static boolean referBlob(String[] blobs, BitSet blobRefs, String[] manifests, BitSet manifestRefs,
+                                     String ID) {
+        boolean raw = refer(blobs, blobRefs, ID);
+        boolean chunked = refer(manifests, manifestRefs, ID);
+        return raw || chunked;
+    }
+
+    private static File file(File dir, String ID) {
+        return join(dir, ID.substring(0, 2), ID.substring(2));
+    }
+
+    private static class ManifestResult {
+        final List<String> problems = new ArrayList<>();
+        final List<Integer> referenced = new ArrayList<>();
+        final List<Integer> verified = new ArrayList<>();
+    }
+
+    /** 检查结果 */
+    static class Report {
+        final List<String> problems = new ArrayList<>();
+        long objects;
+        long bytes;
+        long nanos;
+
+        /** 除dangling以外的问题数 */
+        long errors() {
+            return problems.stream().filter(problem -> !problem.startsWith("dangling ")).count();
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            double mb = bytes / (1024.0 * 1024.0);
+            return String.format("Checked %d objects (%.1f MB) in %.1f ms: %.0f objects/s, %.1f MB/s",
+                    objects, mb, nanos / 1e6, objects / seconds, mb / seconds);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static gitlet.Utils.*;
+
+/**
+ * 回收不可达的对象
+ *
+ * 标记：先列出commits、blobs、manifests、chunks四个目录中的全部对象ID并排序，每类对象对应一个BitSet，
+ * 对象在排序后数组中的下标就是它在BitSet中的位置（二分查找得到）。
+ * 从根（分支、暂存区、MERGE_HEAD）出发按层遍历commit 每层的commit并行读取，
+ * 标记可达的commit以及它们引用的blob 再标记可达的清单引用的块。
+ * 清除：没有被标记 并且最后修改时间早于宽限期的对象才会被删除。
+ *
+ * 宽限期保证与正在执行的add/commit并发时是安全的：刚写入（或被add重新使用而刷新了修改时间 见touch）的对象不会被删除，
+ * 宽限期内未被引用的commit也作为根 使它们引用的blob同样被保留。
+ * 可达的对象从不被修改或删除 因此同时读取仓库的命令不受影响。
+ */
+class GarbageCollector {
+
+    private final File commitsDir;
+    private final File blobsDir;
+    private final File manifestsDir;
+    private final File chunksDir;
+
+    GarbageCollector(File commitsDir, File blobsDir, File manifestsDir, File chunksDir) {
+        this.commitsDir = commitsDir;
+        this.blobsDir = blobsDir;
+        this.manifestsDir = manifestsDir;
+        this.chunksDir = chunksDir;
+    }
+
+    /**
+     * 重新使用已有对象OBJECT（ID为对象ID）时调用 使并发的gc不会把它当作过期的不可达对象删除
+     * 只有一个链接的对象直接刷新修改时间；对象与工作目录中的文件（link模式）或clone出的仓库共享inode时，
+     * 刷新修改时间会连带改变这些文件（工作目录的stat缓存因此失效） 改为在JOURNAL中追加一行 "时间 ID"，
+     * gc把宽限期内记录的ID当作根（见recent）
+     */
+    static void touch(File object, String ID, File journal) {
+        try {
+            Object nlink = Files.getAttribute(object.toPath(), "unix:nlink");
+            if (nlink instanceof Integer && (Integer) nlink > 1) {
+                String line = System.currentTimeMillis() + " " + ID + "\n";
+                synchronized (GarbageCollector.class) {
+                    Files.write(journal.toPath(), line.getBytes(StandardCharsets.US_ASCII),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                return;
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            //无法判断链接数时刷新修改时间
+        }
+        object.setLastModified(System.currentTimeMillis());
+    }
+
+    /** JOURNAL中不早于CUTOFF的对象ID  同时删除过期的记录 */
+    static List<String> recent(File journal, long cutoff) {
+        List<String> IDs = new ArrayList<>();
+        if (!journal.isFile()) {
+            return IDs;
+        }
+        StringBuilder kept = new StringBuilder();
+        for (String line : readContentsAsString(journal).split("\n")) {
+            String[] fields = line.split(" ");
+            try {
+                if (fields.length == 2 && Long.parseLong(fields[0]) >= cutoff) {
+                    IDs.add(fields[1]);
+                    kept.append(line).append('\n');
+                }
+            } catch (NumberFormatException e) {
+                //忽略损坏的行
+            }
+        }
+        File tmp = new File(journal.getPath() + ".tmp");
+        writeContents(tmp, kept.toString());
+        try {
+            Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        return IDs;
+    }
+
+    /**
+     * 以ROOTCOMMITS和ROOTBLOBS为根标记 删除其余早于GRACEMILLIS毫秒之前的对象
+     * ROOTBLOBS中也可以有块的ID（被重新使用的块 见touch）
+     */
+    Stats collect(Collection<String> rootCommits, Collection<String> rootBlobs, long graceMillis) {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        String[] commits = list(commitsDir);
+        String[] blobs = list(blobsDir);
+        String[] manifests = list(manifestsDir);
+        String[] chunks = list(chunksDir);
+        BitSet commitMarks = new BitSet(commits.length);
+        BitSet blobMarks = new BitSet(blobs.length);
+        BitSet manifestMarks = new BitSet(manifests.length);
+        BitSet chunkMarks = new BitSet(chunks.length);
+
+        //宽限期内的commit即使不可达也会保留 它们引用的对象也需要保留
+        List<String> frontier = new ArrayList<>(rootCommits);
+        for (String ID : commits) {
+            if (file(commitsDir, ID).lastModified() >= cutoff) {
+                frontier.add(ID);
+            }
+        }
+        List<String> reachableBlobs = new ArrayList<>(rootBlobs);
+        for (String ID : rootBlobs) {
+            mark(chunks, chunkMarks, ID);
+        }
+        while (!frontier.isEmpty()) {
+            List<String> level = new ArrayList<>();
+            for (String ID : frontier) {
+                int i = Arrays.binarySearch(commits, ID);
+                if (i >= 0 && !commitMarks.get(i)) {
+                    commitMarks.set(i);
+                    level.add(ID);
+                }
+            }
+            List<Commit> loaded = level.parallelStream()
+                    .map(ID -> readObject(file(commitsDir, ID), Commit.class))
+                    .collect(Collectors.toList());
+            frontier = new ArrayList<>();
+            for (Commit commit : loaded) {
+                for (String parent : commit.getParents()) {
+                    if (parent != null) {
+                        frontier.add(parent);
+                    }
+                }
+                reachableBlobs.addAll(commit.getBlobs().values());
+            }
+        }
+
+        List<String> reachableManifests = new ArrayList<>();
+        for (String ID : reachableBlobs) {
+            mark(blobs, blobMarks, ID);
+            if (mark(manifests, manifestMarks, ID)) {
+                reachableManifests.add(ID);
+            }
+        }
+        for (int i = 0; i < manifests.length; i++) {
+            if (!manifestMarks.get(i) && file(manifestsDir, manifests[i]).lastModified() >= cutoff) {
+                reachableManifests.add(manifests[i]);
+            }
+        }
+        List<List<String>> chunkLists = reachableManifests.parallelStream()
+                .map(ID -> ChunkStore.Manifest.read(file(manifestsDir, ID)).ids)
+                .collect(Collectors.toList());
+        for (List<String> chunkIDs : chunkLists) {
+            for (String ID : chunkIDs) {
+                mark(chunks, chunkMarks, ID);
+            }
+        }
+
+        Stats stats = new Stats();
+        stats.objects = commits.length + blobs.length + manifests.length + chunks.length;
+        stats.commits = sweep(commitsDir, commits, commitMarks, cutoff, stats);
+        stats.blobs = sweep(blobsDir, blobs, blobMarks, cutoff, stats)
+                + sweep(manifestsDir, manifests, manifestMarks, cutoff, stats);
+        stats.chunks = sweep(chunksDir, chunks, chunkMarks, cutoff, stats);
+        stats.nanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /** 删除IDS中未被标记且早于CUTOFF的对象 返回删除的数量 */
+    private static long sweep(File dir, String[] IDs, BitSet marks, long cutoff, Stats stats) {
+        AtomicLong bytes = new AtomicLong();
+        long removed = IntStream.range(0, IDs.length).parallel()
+                .filter(i -> !marks.get(i))
+                .filter(i -> {
+                    File file = file(dir, IDs[i]);
+                    long length = file.length();
+                    if (file.lastModified() < cutoff && file.delete()) {
+                        bytes.addAndGet(length);
+                        return true;
+                    }
+                    return false;
+                })
+                .count();
+        stats.bytes += bytes.get();
+        return removed;
+    }
+
+    /** 在BitSet中标记ID  ID存在且此前没有被标记时返回true */
+    private static boolean mark(String[] IDs, BitSet marks, String ID) {
+        int i = Arrays.binarySearch(IDs, ID);
+        if (i < 0 || marks.get(i)) {
+            return false;
+        }
+        marks.set(i);
+        return true;
+    }
+
+    /** 按 目录/前两位/其余部分 保存的所有对象ID 已排序 */
+    static String[] list(File dir) {
+        String[] prefixes = dir.list();
+        if (prefixes == null) {
+            return new String[0];
+        }
+        Arrays.sort(prefixes);
+        return Arrays.stream(prefixes).parallel()
+                .filter(prefix -> prefix.length() == 2 && join(dir, prefix).isDirectory())
+                .flatMap(prefix -> plainFilenamesIn(join(dir, prefix)).stream().map(rest -> prefix + rest))
+                .toArray(String[]::new);
+    }
+
+    private static File file(File dir, String ID) {
+        return join(dir, ID.substring(0, 2), ID.substring(2));
+    }
+
+    /** 一次回收的统计信息 */
+    static class Stats {
+        long objects;
+        long commits;
+        long blobs;
+        long chunks;
+        long bytes;
+        long nanos;
+
+        boolean removedCommits() {
+            return commits > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Removed %d commits, %d blobs, %d chunks (%.1f MB) of %d objects in %.1f ms",
+                    commits, blobs, chunks, bytes / (1024.0 * 1024.0), objects, nanos / 1e6);
+        }
+    }
+}
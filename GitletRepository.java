@@ -0,0 +1,2125 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static gitlet.Utils. *;
+
+/**
+ * 一个gitlet仓库  由工作目录的路径打开（open）或创建（init）
+ *
+ * 所有命令都是实例方法：出错时抛出GitletException（getMessage()就是命令行中打印的提示），
+ * 结果通过返回值给出 不打印也不退出进程。因此一个进程中可以同时打开多个仓库、连续执行任意多个命令，
+ * JIT和commit索引、commit图的缓存在命令之间一直有效。Main只是这里的一层命令行包装。
+ *
+ * 实例持有commit索引和commit图的内存缓存  用完后应当close（可以用于try-with-resources）。
+ *
+ * 并发：每个命令执行期间持有该仓库目录的锁（同一进程中打开同一目录的所有实例共享一个锁），
+ * 因此可以在多个线程中同时对不同的仓库执行命令，同一仓库上的命令依次执行。
+ * 命令内部的并行I/O使用所有仓库共享的线程池（Workers） 读取的commit对象放在所有仓库共享的缓存中（CommitCache）。
+ * Workers只供内部使用 不对外公开：命令会等待提交到其中的任务，在Workers中执行命令可能耗尽全部线程而死锁，
+ * 因此执行命令的线程由调用者提供（例如自己的线程池） 并发执行的命令数也由调用者决定。
+ * 锁只在进程内有效 不同进程同时修改同一个仓库仍然是不安全的。
+ */
+public class GitletRepository implements AutoCloseable {
+    //当前工作目录
+    private final File workTree;
+    //.gitlet目录
+    private final File gitletDir;
+    /**
+     * The .gitlet/HEAD file, name of the current branch.
+     */
+    private final File headFile;
+    /**
+     * The .gitlet/INDEX file, the staging area.
+     */
+    private final File indexFile;
+    /**
+     * The .gitlet/branches directory.
+     */
+    private final File branchesDir;
+    /**
+     * The .gitlet/objects directory.
+     */
+    private final File objectsDir;
+    /**
+     * The .gitlet/objects/blobs  directory.
+     */
+    private final File blobsDir;
+    /**
+     * The .gitlet/objects/commits  directory.
+     */
+    private final File commitsDir;
+    /**
+     * The .gitlet/objects/manifests directory, chunk lists of blobs stored as content-defined chunks.
+     */
+    private final File manifestsDir;
+    /**
+     * The .gitlet/objects/chunks directory.
+     */
+    private final File chunksDir;
+    private final ChunkStore chunkStore;
+    /**
+     * The .gitlet/commit-index file, sorted commit IDs used to resolve abbreviated IDs.
+     */
+    private final CommitIndex commitIndex;
+    /**
+     * The .gitlet/commit-graph file (parent positions in topological order),
+     * the .gitlet/commit-bitmaps file (reachability bitmaps of branch heads) and
+     * the .gitlet/commit-bloom file (changed-path Bloom filters of every commit).
+     */
+    private final CommitGraph commitGraph;
+    /**
+     * The .gitlet/stat-cache file, (size, mtime, blob ID) of working files.
+     */
+    private final File statCacheFile;
+    /** 被重新使用的共享对象（见GarbageCollector.touch） */
+    private final File recentObjectsFile;
+    /** link模式的硬链接记录（见LinkLedger） */
+    private final File linksFile;
+    /**
+     * The .gitlet/config file.
+     */
+    private final File configFile;
+    /**
+     * The .gitlet/sparse-checkout file, path patterns of the sparse checkout.
+     */
+    private final File sparseFile;
+    /**
+     * The .gitlet/blame-cache directory, line origins of file versions computed by blame.
+     */
+    private final File blameCacheDir;
+
+    //同一进程中各个仓库目录的锁  键为工作目录的规范路径
+    private static final ConcurrentHashMap<String,RepositoryLock> LOCKS=new ConcurrentHashMap<>();
+
+    /**
+     * 一个仓库目录的锁
+     * GENERATION在每个命令结束时加一：同一目录的其他实例由此得知自己的commit索引和commit图缓存可能已经过期
+     */
+    private static class RepositoryLock {
+        final ReentrantLock lock=new ReentrantLock();
+        long generation=0;
+        //处于批处理模式、可能有尚未写回的修改的实例  其他实例获取锁时先替它写回
+        GitletRepository pending;
+    }
+
+    private final RepositoryLock repoLock;
+    //本实例的缓存对应的GENERATION
+    private long seenGeneration=-1;
+
+    /**
+     * 暂存区、HEAD和各分支最新commit ID的缓存
+     * 一般只在一个命令中有效（最外层的命令开始时丢弃）；批处理模式中在命令之间保留
+     */
+    private Index stagingArea;
+    private String headCache;
+    private final HashMap<String,String> branchCache=new HashMap<>();
+    //批处理模式：暂存区的修改和commit位图只保留在内存中 直到flush
+    private boolean batchMode=false;
+    private boolean indexDirty=false;
+
+    //--stats 选项：不为null时 checkout/reset/快进merge结束后以及分块保存大文件后在这里打印写入的吞吐量
+    private PrintStream statsOut;
+    private boolean closed = false;
+
+    private GitletRepository(File workTree){
+        this.workTree=workTree.getAbsoluteFile();
+        gitletDir=join(this.workTree,".gitlet");
+        headFile=join(gitletDir,"HEAD");
+        indexFile=join(gitletDir,"INDEX");
+        branchesDir=join(gitletDir,"branches");
+        objectsDir=join(gitletDir,"objects");
+        blobsDir=join(objectsDir,"blobs");
+        commitsDir=join(objectsDir,"commits");
+        manifestsDir=join(objectsDir,"manifests");
+        chunksDir=join(objectsDir,"chunks");
+        recentObjectsFile=join(gitletDir,"recent-objects");
+        linksFile=join(gitletDir,"links");
+        chunkStore=new ChunkStore(manifestsDir,chunksDir,recentObjectsFile);
+        commitIndex=new CommitIndex(join(gitletDir,"commit-index"),commitsDir);
+        commitGraph=new CommitGraph(join(gitletDir,"commit-graph"),join(gitletDir,"commit-bitmaps"),
+                join(gitletDir,"commit-bloom"),commitsDir,branchesDir);
+        statCacheFile=join(gitletDir,"stat-cache");
+        configFile=join(gitletDir,"config");
+        sparseFile=join(gitletDir,"sparse-checkout");
+        blameCacheDir=join(gitletDir,"blame-cache");
+        repoLock=LOCKS.computeIfAbsent(canonicalPath(this.workTree),k->new RepositoryLock());
+    }
+
+    private static String canonicalPath(File file){
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * 打开WORKTREE中已有的仓库
+     */
+    public static GitletRepository open(File workTree){
+        GitletRepository repo=new GitletRepository(workTree);
+        repo.checkIfGitletExists();
+        return repo;
+    }
+
+    /**
+     * init 命令：在WORKTREE中创建仓库 完成initial commit
+     *  创建.gitlet文件夹及所需的其他文件夹。。。
+     *
+     */
+    public static GitletRepository init(File workTree){
+        GitletRepository repo=new GitletRepository(workTree);
+        //如果.gitlet文件夹已经存在，则抛出异常
+        if(repo.gitletDir.exists()){
+            throw new GitletException("Already a Gitlet version-control system in the current directory.");
+        }
+
+        //创建.gitlet文件夹及其子目录
+        repo.gitletDir.mkdir();
+        repo.branchesDir.mkdir();
+        repo.objectsDir.mkdir();
+        repo.blobsDir.mkdir();
+        repo.commitsDir.mkdir();
+
+        //新仓库从一开始就有commit图 之后每个commit的记录和修改路径过滤器都在提交时追加
+        repo.commitGraph.create();
+        //创建并保存initial commit
+        Commit initCommit=new Commit(new Date(0),"initial commit",null);
+        String ID=repo.saveCommit(initCommit);
+        //保存master branch和HEAD
+        repo.updateBranch("master",ID);
+        repo.writeHead("master");
+        return repo;
+    }
+
+    /**
+     * clone 命令：把本仓库复制到DESTINATION（不存在时创建 已存在时必须是空目录）并检出HEAD  返回打开的新仓库
+     *
+     * 对象库中的文件写入后不会再被修改 用硬链接共享（跨文件系统时 以及与link模式检出的工作目录文件共享inode的blob复制，见ObjectCloner）；
+     * 分支和HEAD，以及会被追加写入的commit索引、commit图和位图各复制一份，
+     * 暂存区、合并状态、配置和stat-cache不复制。最后由checkout的并行写入检出HEAD。
+     * 因此耗时取决于对象数和HEAD中的文件 与文件内容的大小和历史长度基本无关。
+     */
+    public GitletRepository cloneTo(File destination){
+        GitletRepository target=new GitletRepository(destination);
+        if(target.workTree.exists()){
+            String[] children=target.workTree.list();
+            if(children==null || children.length>0){
+                throw new GitletException("Destination path already exists and is not an empty directory.");
+            }
+        }
+        boolean created=!target.workTree.exists();
+        try {
+            lock();
+            try {
+                target.gitletDir.mkdirs();
+                target.branchesDir.mkdir();
+                ObjectCloner.Stats stats=new ObjectCloner(objectsDir,target.objectsDir,linksFile.exists()).run();
+                for(String name : new String[]{"commit-index","commit-graph","commit-bitmaps","commit-bloom"}){
+                    File file=join(gitletDir,name);
+                    if(file.isFile()){
+                        writeContents(join(target.gitletDir,name),readContents(file));
+                    }
+                }
+                for(String branch : plainFilenamesIn(branchesDir)){
+                    target.updateBranch(branch,getHeadCommitID(branch));
+                }
+                target.writeHead(readHead());
+                if(statsOut!=null){
+                    statsOut.println(stats);
+                }
+            } finally {
+                unlock();
+            }
+            target.setStatsOutput(statsOut);
+            target.checkoutCommit(target.getCommit(target.branchHead(target.currentBranch())));
+            return target;
+        } catch (RuntimeException e) {
+            //清理未完成的clone
+            target.close();
+            ObjectCloner.deleteTree(created ? target.workTree : target.gitletDir);
+            throw e;
+        }
+    }
+
+    /** 工作目录 */
+    public File getWorkTree(){
+        return workTree;
+    }
+
+    /**
+     * 不为null时 checkout、reset、快进merge和分块保存大文件之后把写入的吞吐量打印到OUT（命令行的 --stats 选项）
+     */
+    public void setStatsOutput(PrintStream out){
+        statsOut = out;
+    }
+
+    /**
+     * 批处理模式：连续执行大量命令（例如重放成千上万次add/commit）时使用
+     *
+     * 开启后暂存区、HEAD和分支的最新commit ID在命令之间一直保留在内存中，
+     * 暂存区的修改不再在每个命令结束时写回INDEX，commit位图也不再在每次commit时写回，
+     * 只在flush、close、关闭批处理模式，或者同一目录的其他实例执行命令之前写回。
+     * commit、分支和HEAD仍然立即写入文件。进程在flush之前异常退出时会丢失暂存区的修改。
+     * 批处理期间不要让其他进程修改这个仓库。
+     */
+    public void setBatchMode(boolean batch){
+        lock();
+        try {
+            if(!batch){
+                flushPending();
+            }
+            batchMode=batch;
+            commitGraph.setDeferred(batch);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 把批处理模式中尚未写回的暂存区和commit位图写入文件
+     */
+    public void flush(){
+        lock();
+        try {
+            flushPending();
+        } finally {
+            unlock();
+        }
+    }
+
+    //持有锁时调用
+    private void flushPending(){
+        if(indexDirty){
+            stagingArea.save();
+            indexDirty=false;
+        }
+        commitGraph.flush();
+        if(repoLock.pending==this){
+            repoLock.pending=null;
+        }
+    }
+
+    /**
+     * 写回尚未写入的修改 释放commit索引和commit图的内存缓存  之后不能再在这个实例上执行命令
+     */
+    @Override
+    public void close(){
+        repoLock.lock.lock();
+        try {
+            if(!closed && gitletDir.isDirectory()){
+                flushPending();
+            }
+            closed=true;
+            commitIndex.close();
+            commitGraph.close();
+        } finally {
+            repoLock.lock.unlock();
+        }
+    }
+
+    //检查仓库没有被关闭 并且.gitlet文件夹存在  将此操作封装成一个方法 方便后面多次调用
+    private void checkIfGitletExists() {
+        if(closed){
+            throw new GitletException("Repository is closed.");
+        }
+        if(!gitletDir.isDirectory()){
+            throw new GitletException("Not in an initialized Gitlet directory.");
+        }
+    }
+
+    /**
+     * 每个公开的命令开始时调用：检查仓库 获取仓库目录的锁（可重入）
+     * 先写回同一目录中处于批处理模式的其他实例尚未写入的修改；
+     * 同一目录的其他实例在此期间执行过命令时 丢弃本实例中可能过期的commit索引、commit图和暂存区等缓存
+     */
+    private void lock(){
+        checkIfGitletExists();
+        repoLock.lock.lock();
+        if(repoLock.lock.getHoldCount()>1){
+            return;
+        }
+        if(repoLock.pending!=null && repoLock.pending!=this){
+            repoLock.pending.flushPending();
+        }
+        if(repoLock.generation!=seenGeneration){
+            commitIndex.close();
+            commitGraph.close();
+            dropCaches();
+        } else if(!batchMode){
+            dropCaches();
+        }
+    }
+
+    /**
+     * 命令结束时调用 与lock配对  最外层的命令结束时推进GENERATION
+     */
+    private void unlock(){
+        if(repoLock.lock.getHoldCount()==1){
+            seenGeneration=++repoLock.generation;
+            if(batchMode){
+                repoLock.pending=this;
+            }
+        }
+        repoLock.lock.unlock();
+    }
+
+    private void dropCaches(){
+        stagingArea=null;
+        indexDirty=false;
+        headCache=null;
+        branchCache.clear();
+    }
+
+    /**
+     * 暂存区  在同一个命令中（批处理模式中在命令之间）返回同一个对象
+     */
+    private Index readIndex(){
+        if(stagingArea==null){
+            stagingArea=Index.getStagingArea(indexFile);
+        }
+        return stagingArea;
+    }
+
+    /**
+     * 保存修改后的暂存区  批处理模式中只做标记 由flushPending写回
+     */
+    private void writeIndex(Index changes){
+        stagingArea=changes;
+        if(batchMode){
+            indexDirty=true;
+        } else {
+            changes.save();
+        }
+    }
+
+    public void add(String FileName){
+        lock();
+        try {
+            verifyLinks();
+            File newFile=join(workTree,FileName);
+            if(!newFile.exists()){
+                throw new GitletException("File does not exist.");
+            }
+
+            //新文件添加 保存blob
+            //超过chunk.threshold的大文件流式分块保存 只写入新的块；其余文件读取内容 计算sha1值
+            String ID;
+            long threshold=chunkThreshold();
+            if(threshold>0 && newFile.length()>=threshold){
+                long[] stats=new long[3];
+                ID=chunkStore.store(newFile,stats);
+                if(statsOut!=null){
+                    statsOut.printf("Stored %d chunks (%d new, %.1f MB written)%n",
+                            stats[0],stats[1],stats[2]/(1024.0*1024.0));
+                }
+            } else {
+                byte[] fileContent=readContents(newFile);
+                ID=saveBlob(fileContent);
+            }
+
+            //更新索引Index
+            //首先获取当前分支的最新提交(head)
+            Commit headCommit=getHeadCommit();
+            Index stagingArea=readIndex();
+            //1. 如果文件在removed映射中 并且哈希值相同 则从removed映射中删除
+            if(stagingArea.removed.containsKey(FileName)
+                && stagingArea.removed.get(FileName).equals(ID)){
+                stagingArea.removed.remove(FileName);
+                //2. 如果是新文件
+            } else if (!stagingArea.staged.containsKey(FileName)) {
+                //如果文件不在staged映射中，检查他是否被最新的commit追踪
+                if(!headCommit.tracks(FileName)||!headCommit.fileVersion(FileName).equals(ID)){
+                    //没有被追踪或者版本不同，则将其添加到staged映射中
+                    stagingArea.staged.put(FileName,ID);
+                } else {
+                    //如果文件在head commit中已暂存 且版本一致，则不需要再次暂存 直接返回
+                    return;
+                }
+                //3. 如果文件已暂存 但内容更改
+            } else if (!stagingArea.staged.get(FileName).equals(ID)) {
+                //如果文件已被暂存，但内容的哈希值不同，则更新staged中的哈希值
+                stagingArea.staged.put(FileName,ID);
+            }else return;
+            writeIndex(stagingArea);
+
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 将内容保存为blob 返回其ID（内容的SHA-1值）
+     */
+    private String saveBlob(byte[] fileContent){
+        String ID=sha1(fileContent);
+        long threshold=chunkThreshold();
+        if(threshold>0 && fileContent.length>=threshold && !blobExists(ID)){
+            try {
+                return chunkStore.store(new ByteArrayInputStream(fileContent),null);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+        //构建blob存储的目录路径
+        File blobPrefix=join(blobsDir,ID.substring(0,2));
+        //如果不存在 就创建blob存储目录
+        if(!blobPrefix.exists()){
+            blobPrefix.mkdir();
+        }
+        //构建blob文件的完整路径   将blobPrefix目录的哈希值ID 的剩余部分连接起来，形成完成的blob文件路径
+        File blob=join(blobPrefix,ID.substring(2));
+        //检查blob文件是否存在
+        if(!blob.exists()){
+            //不存在：将文件内容写入blob文件
+            writeContents(blob,fileContent);
+        } else {
+            //存在：则说明这个blob文件已经被存储过 ，不需要重复存储
+            //刷新修改时间（或记录到recent-objects） 使并发的gc不会把它当作过期的不可达对象删除
+            GarbageCollector.touch(blob,ID,recentObjectsFile);
+        }
+        return ID;
+    }
+
+    /**
+     * 将文件FILE的内容保存为blob 返回其ID  超过chunk.threshold的文件流式分块保存 不读入内存
+     */
+    private String saveBlob(File file){
+        long threshold=chunkThreshold();
+        if(threshold>0 && file.length()>=threshold){
+            return chunkStore.store(file,null);
+        }
+        return saveBlob(readContents(file));
+    }
+
+    /**
+     * blob是否已保存（原始内容或分块）
+     */
+    private boolean blobExists(String ID){
+        return join(blobsDir,ID.substring(0,2),ID.substring(2)).isFile() || chunkStore.contains(ID);
+    }
+
+    /**
+     * 分块保存的文件大小下限（字节）  由配置项 chunk.threshold 设置 默认为0 即不分块
+     */
+    private long chunkThreshold(){
+        return Config.load(configFile).getLong("chunk.threshold",0);
+    }
+
+    /**
+     * 保存commit 并将其ID追加到commit索引和commit图中  返回其ID
+     */
+    private String saveCommit(Commit commit){
+        String ID=sha1(commit.toString());
+        commit.save(commitsDir,ID);
+        CommitCache.put(ID,commit);
+        commitIndex.add(ID);
+        commitGraph.add(ID,commit.getParents(),changedPaths(commit));
+        return ID;
+    }
+
+    /**
+     * COMMIT相对第一个parent新增、修改和删除的文件（initial commit为它的全部文件）
+     */
+    private List<String> changedPaths(Commit commit){
+        PathTable blobs=PathTable.of(commit.getBlobs());
+        String parent=commit.getParent();
+        PathTable parentBlobs=parent==null ? PathTable.EMPTY : PathTable.of(getCommitBySHA(parent).getBlobs());
+        return blobs.changedPaths(parentBlobs);
+    }
+
+    /**
+     * 将分支BRANCHNAME指向commit ID
+     */
+    void updateBranch(String branchName,String ID){
+        writeContents(join(branchesDir,branchName),ID);
+        branchCache.put(branchName,ID);
+    }
+
+    /**
+     * HEAD中的当前分支名
+     */
+    private String readHead(){
+        if(headCache==null){
+            headCache=readContentsAsString(headFile);
+        }
+        return headCache;
+    }
+
+    private void writeHead(String branchName){
+        writeContents(headFile,branchName);
+        headCache=branchName;
+    }
+
+    /**
+     * 当前分支名
+     */
+    public String currentBranch(){
+        lock();
+        try {
+            return readHead();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 返回head指向的commit
+     */
+    private Commit getHeadCommit(){
+        String curBranch=readHead();
+        String SHA1=getHeadCommitID(curBranch);
+        return getCommitBySHA(SHA1);
+    }
+    /**
+     * 获取给定分支的HEAD的SHA1值
+     */
+    private String getHeadCommitID(String branchName){
+        return branchCache.computeIfAbsent(branchName,name->readContentsAsString(join(branchesDir,name)));
+    }
+
+    /**
+     * 分支BRANCHNAME最新commit的ID
+     */
+    public String branchHead(String branchName){
+        lock();
+        try {
+            if(!branchExists(branchName)){
+                throw new GitletException("No such branch exists.");
+            }
+            return getHeadCommitID(branchName);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 根据（可以缩写的）commit ID读取commit对象
+     * 返回的对象可能被多个仓库共享 getBlobs()返回的映射不可修改
+     */
+    public Commit getCommit(String ID){
+        lock();
+        try {
+            return getCommitBySHA(ID);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 根据SHA1值获取commit对象
+     * SHA1可以是缩写的commit ID
+     */
+    private Commit getCommitBySHA(String SHA1) {
+        if (SHA1.length() != UID_LENGTH) {
+            SHA1 = resolveCommitID(SHA1);
+        }
+        File commitPrefix=join(commitsDir,SHA1.substring(0,2));
+        File commit=join(commitPrefix,SHA1.substring(2));
+        if(!commit.exists()){
+            throw new GitletException("No commit with that id exists.");
+        }
+        //commit对象不可变 在所有仓库之间共享缓存（是否存在仍以当前仓库中的文件为准）
+        Commit cached=CommitCache.get(SHA1);
+        if(cached==null){
+            cached=readObject(commit,Commit.class);
+            CommitCache.put(SHA1,cached);
+        }
+        return cached;
+    }
+
+    /**
+     * 将完整或缩写的commit ID解析为完整的40位ID
+     * 所有接受commit ID的命令都通过这里解析  查找由commit-index中的二分查找完成 不需要遍历commit目录
+     * 缩写对应多个commit时 commit索引抛出的GitletException直接传给调用者
+     */
+    public String resolveCommitID(String ID) {
+        lock();
+        try {
+            if (ID.length() < 4) {  // 最小4位
+                throw new GitletException("Commit ID must be at least 4 characters long.");
+            }
+            ID = ID.toLowerCase();
+            String fullID = null;
+            if (ID.length() <= UID_LENGTH && ID.matches("[0-9a-f]+")) {
+                fullID = commitIndex.resolve(ID);
+            }
+            if (fullID == null) {
+                throw new GitletException("No commit with that id exists.");
+            }
+            return fullID;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 根据给定的提交（Commit）对象和暂存区变化（Index）来创建一个新的 blob 映射。
+     * 这个新的 blob 映射代表了提交中文件的最新状态，包括新增、修改和删除的文件
+     * newBlobs中不包括在working dir中但未在staging area中的文件
+     * 即 只包括add到staging area中的文件 因为只有add后才会生成blob
+     * **这里注意区别snapShot方法 snapshot方法是对working dir中的所有文件生成快照（blob)
+     * @param commit
+     * @param changes
+     * @return
+     */
+    private static PathTable getNewBlobs(Commit commit,Index changes){
+        //以给定的commit的当前的blob映射为基础 记录修改（写时复制：暂存区为空时直接返回原来的映射 不复制）
+        PathTable.Builder newBlobs=PathTable.of(commit.getBlobs()).toBuilder();
+        //遍历Index对象中的staged映射， 里面包含了暂存区中所有新增的或修改的文件
+        for (Map.Entry<String,String> entry : changes.staged.entrySet()){
+            //对于每个文件 将其blob哈希值添加到新的blob映射中 （如果是相同文件但被修改 则新的(value)SHA-1哈希值会覆盖原来的哈希值）
+            newBlobs.put(entry.getKey(),entry.getValue());
+        }
+        //遍历Index对象中的removed映射，里面包含了暂存区中被删除的文件
+        for (String removedFile : changes.removed.keySet()){
+            //对于每个被删除的文件，从新的blob映射中移除
+            newBlobs.remove(removedFile);
+        }
+        return newBlobs.build();
+    }
+
+
+    /**
+     * 是否处于有冲突的merge之后（存在MERGE_HEAD）  此时commit会创建merge commit
+     */
+    public boolean isMerging(){
+        lock();
+        try {
+            return join(gitletDir,"MERGE_HEAD").exists();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * commit命令
+     * 返回新commit的ID
+     */
+    public String commit(String message){
+        /**  Precheck.  */
+        lock();
+        try {
+            if(message.equals("")){
+                throw new GitletException("Please enter a commit message.");
+            }
+            //如果暂存区为空(没有变化)则不能commit
+            Index changes=readIndex();
+            if(changes.isEmpty()){
+                throw new GitletException("No changes added to the commit.");
+            }
+
+            /** 构建并保存新的提交 */
+            /**
+             * 几个关键函数： 通过分支名得到该分支的HEAD提交（getHeadCommitID）   通过SHA1值得到commit对象（getCommitBySHA）
+             */
+            Date timeStamp=new Date();
+            String curBranch = readHead();
+
+            String curCommitID = getHeadCommitID(curBranch);  //parent为sha1值
+            //Blobs     根据sha-1值得到commit对象--->通过commit对象和index(暂存区的变化)得到newBlobs
+            Commit prevCommit=getCommitBySHA(curCommitID);
+            Map<String,String> newBlobs = getNewBlobs(prevCommit, changes);
+
+            //检查是否为merge冲突后的提交
+            String[] parents;
+            File mergeHeadFile = join(gitletDir, "MERGE_HEAD");
+            if(mergeHeadFile.exists()){
+                String mergedCommitID = readContentsAsString(mergeHeadFile);
+                //第一个parent为当前分支 与直接完成的merge commit一致
+                parents=new String[]{curCommitID,mergedCommitID};
+            }else {
+                parents=new String[]{curCommitID};
+            }
+            //创建并保存新的commit
+            Commit newCommit=new Commit(timeStamp,message,parents,newBlobs);
+            String ID;
+            try {
+                ID=saveCommit(newCommit);
+                updateBranch(curBranch,ID);
+            } catch (IllegalArgumentException e) {
+                throw new GitletException("Error saving commit: " + e.getMessage());
+            }
+            /** 清理合并状态和暂存区 */
+            if(mergeHeadFile.exists() && !mergeHeadFile.delete()){
+                throw new GitletException("Error deleting MERGE_HEAD");
+            }
+            changes.clear();
+            writeIndex(changes);
+            return ID;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * rm 命令
+     */
+    public void remove(String fileName){
+        lock();
+        try {
+            //Flags: 如果文件 未被追踪也不在StagingArea中(neither staged nor tracked) 则为true
+            boolean errorFlag=true;
+
+            Index changes=readIndex();
+            Commit headCommit=getHeadCommit();
+            //如果文件已被tracked 则先将其从working dir移除
+            if(headCommit.tracks(fileName)){
+                File toDelete =join(workTree,fileName);
+                if(toDelete.exists()&&!restrictedDelete(toDelete)){
+                    //如果restrictedDelete返回false 则表示文件不能删除（例如是目录） 不修改暂存区（批处理模式中暂存区留在内存里 不能先改后报错）
+                    throw new GitletException("Cannot remove " + fileName + ".");
+                }
+                //再将它stage到index的removal里面
+                changes.removed.put(fileName,headCommit.fileVersion(fileName));
+                errorFlag=false;
+            }
+            //如果在staging area则直接unstage掉
+            if(changes.staged.containsKey(fileName)){
+                changes.staged.remove(fileName);
+                errorFlag=false;
+            }
+            //如果既未被track也未被stage 则报错
+            if(errorFlag){
+                throw new GitletException("No reason to remove the file.");
+            }
+            writeIndex(changes);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * log和global-log中的一项：commit的ID和commit对象
+     * toString为命令行中打印的格式
+     */
+    public static class LogEntry {
+        public final String id;
+        public final Commit commit;
+        //merge commit的两个parent的缩写ID（至少7个字符 且能唯一确定该提交） 不是merge commit时为null
+        private final String mergeParents;
+
+        LogEntry(String id, Commit commit, String mergeParents) {
+            this.id = id;
+            this.commit = commit;
+            this.mergeParents = mergeParents;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder returnSB=new StringBuilder();
+            returnSB.append("===\n");
+            returnSB.append("commit ").append(id).append("\n");
+            //如果时merge Commit则返回父提交的缩写ID
+            if(mergeParents!=null){
+                returnSB.append("Merge: ").append(mergeParents).append("\n");
+            }
+            returnSB.append("Date: " + commit.getFormattedTime() + "\n");
+            returnSB.append(commit.getMessage() + "\n");
+            returnSB.append("\n");
+            return returnSB.toString();
+        }
+    }
+
+    /**
+     * 由commit的详情信息生成log中的一项
+     * @param ID
+     * @param commit
+     */
+    private LogEntry logEntry(String ID,Commit commit){
+        String mergeParents=null;
+        if(commit.isMergeCommit()){
+            mergeParents=commitIndex.abbreviate(commit.getParent(), 7) + " "
+                    + commitIndex.abbreviate(commit.getMergeParent(), 7);
+        }
+        return new LogEntry(ID,commit,mergeParents);
+    }
+
+    /**
+     * log 命令
+     * 获取当前分支的提交历史（沿第一个parent 从最新的commit到initial commit）
+     * 历史的顺序由commit图得到 commit对象由HistoryWalker提前并行读取
+     */
+    public List<LogEntry> log(){
+        lock();
+        try {
+            List<LogEntry> entries=new ArrayList<>();
+            //获取当前分支名称
+            String curBranch = readHead();
+            //通过当前分支 获得最新commit的SHA-1值
+            String ID = getHeadCommitID(curBranch);
+            //从最新的commit沿第一个parent直到initial commit(其parent为null)
+            List<String> history=commitGraph.firstParentChain(ID);
+            try(HistoryWalker<Commit> walker=new HistoryWalker<>(history,this::getCommitBySHA)){
+                for(String commitID : history){
+                    entries.add(logEntry(commitID,walker.next()));
+                }
+            }
+            return entries;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * log -- PATH 命令
+     * 当前分支的提交历史中（沿第一个parent）修改了文件PATH的commit：新增、修改或删除该文件
+     * 由commit图中的修改路径过滤器跳过一定没有修改该文件的commit 只读取可能修改了它的commit和其parent
+     */
+    public List<LogEntry> log(String path){
+        lock();
+        try {
+            List<LogEntry> entries=new ArrayList<>();
+            String headID=getHeadCommitID(readHead());
+            List<String> candidates=commitGraph.firstParentsTouching(headID,path,
+                    candidate -> changedPaths(getCommitBySHA(candidate)));
+            //同时读取commit和它的parent
+            try(HistoryWalker<Commit[]> walker=new HistoryWalker<>(candidates,ID -> {
+                Commit commit=getCommitBySHA(ID);
+                return new Commit[]{commit,commit.getParent()==null ? null : getCommitBySHA(commit.getParent())};
+            })){
+                for(String ID : candidates){
+                    Commit[] commits=walker.next();
+                    String parentBlob=commits[1]==null ? null : commits[1].getBlobs().get(path);
+                    //过滤器可能误判 比较该文件在commit和parent中的版本
+                    if(!Objects.equals(commits[0].getBlobs().get(path),parentBlob)){
+                        entries.add(logEntry(ID,commits[0]));
+                    }
+                }
+            }
+            return entries;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * blame 命令
+     * 当前commit中文件FILENAME的每一行由哪个commit引入（见Blame）
+     * 沿历史只在该文件的blob ID改变的地方做diff 各版本的结果缓存在 .gitlet/blame-cache 中
+     */
+    public Blame.Result blame(String fileName){
+        lock();
+        try {
+            String headID=getHeadCommitID(readHead());
+            String blobID=getCommitBySHA(headID).getBlobs().get(fileName);
+            if(blobID==null){
+                throw new GitletException("File does not exist in that commit.");
+            }
+            Blame blame=new Blame(blameCacheDir,fileName,new Blame.Source() {
+                @Override
+                public Commit commit(String ID) {
+                    return getCommitBySHA(ID);
+                }
+
+                @Override
+                public byte[] blob(String blobID) {
+                    return getBlobContent(blobID);
+                }
+
+                @Override
+                public String firstTouching(String ID, String path) {
+                    return commitGraph.firstTouching(ID,path,candidate -> changedPaths(getCommitBySHA(candidate)));
+                }
+            });
+            String[] origins=blame.run(headID,blobID);
+            return new Blame.Result(origins,getBlobContent(blobID),
+                    ID -> commitIndex.abbreviate(ID,8)+" ("+Commit.formatTime(blame.date(ID)));
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * archive 命令
+     * 把commit ID中的全部文件按文件名顺序写入归档文件OUT 格式由扩展名决定（.tar、.tar.gz/.tgz、.zip）
+     * 内容从对象库流式写入 不读写working dir；THREADS大于1时tar.gz由多个线程并行压缩（见Archive）
+     * 失败时删除未写完的OUT
+     */
+    public Archive.Stats archive(String ID, File out, int threads){
+        Archive.Format format=Archive.Format.of(out.getName());
+        lock();
+        try {
+            Commit commit=getCommitBySHA(resolveCommitID(ID));
+            Archive archive=new Archive(new Archive.Source() {
+                @Override
+                public long size(String blobID) {
+                    File blob=join(blobsDir,blobID.substring(0,2),blobID.substring(2));
+                    return !blob.isFile() && chunkStore.contains(blobID) ? chunkStore.size(blobID) : blob.length();
+                }
+
+                @Override
+                public void writeTo(String blobID, OutputStream target) throws IOException {
+                    File blob=join(blobsDir,blobID.substring(0,2),blobID.substring(2));
+                    if(!blob.isFile() && chunkStore.contains(blobID)){
+                        chunkStore.copyTo(blobID,target);
+                    } else {
+                        Files.copy(blob.toPath(),target);
+                    }
+                }
+            },format,threads,commit.getDate().getTime());
+            Archive.Stats stats;
+            try (OutputStream stream=new BufferedOutputStream(new FileOutputStream(out),1<<16)) {
+                stats=archive.write(PathTable.of(commit.getBlobs()),stream);
+            } catch (IOException | RuntimeException e) {
+                out.delete();
+                if(e instanceof RuntimeException){
+                    throw (RuntimeException) e;
+                }
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            if(statsOut!=null){
+                statsOut.println(stats);
+            }
+            return stats;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * global-log 命令
+     * 所有commit的详情信息
+     */
+    public List<LogEntry> globalLog(){
+        lock();
+        try {
+            List<LogEntry> entries=new ArrayList<>();
+            List<String> IDs=new ArrayList<>();
+            //获取commit目录下所有子目录名（这些名称为commit哈希值的前两位
+            String[] commitDirs= commitsDir.list();
+            //遍历每个子目录(每个子目录（哈希值前两位的）下都存放着若干个commit对象)
+            for(String commitDir : commitDirs){
+                //对于每个子目录 使用plainFilenamesIn方法获取其下所有普通文件名（这些名称即commit哈希值的剩余部分
+                List<String> commits=plainFilenamesIn(join(commitsDir,commitDir));
+                for(String commit : commits){
+                    IDs.add(commitDir+commit);
+                }
+            }
+            try(HistoryWalker<Commit> walker=new HistoryWalker<>(IDs,this::getCommitBySHA)){
+                for(String ID : IDs){
+                    entries.add(logEntry(ID,walker.next()));
+                }
+            }
+            return entries;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 为当前工作目录（working dir)中的所有文件（无论有没有add或commit） 创建blobs 拍摄快照
+     * 大小和修改时间没有变化的文件直接使用stat缓存中的SHA-1值 不需要重新读取
+     */
+    private HashMap<String,String> takeSnapshot(){
+        List<String> curFiles=sparseFiles(plainFilenamesIn(workTree));
+        HashMap<String,String> snapShot =new HashMap<>();
+        StatCache statCache=loadStatCache();
+        for(String fileName : curFiles){
+            //根据文件内容生成SHA-1值 将其存到hashmap中
+            snapShot.put(fileName,statCache.blobID(join(workTree,fileName),fileName));
+        }
+        statCache.save();
+        return snapShot;
+    }
+
+    /**
+     * 读取stat缓存  在此之前校验link模式的硬链接（见LinkLedger）：
+     * 对象已在原地被修改时报告哪个文件、哪个对象（对象保留在对象库中由fsck报告 工作目录中的文件保留修改后的内容）
+     */
+    private StatCache loadStatCache(){
+        verifyLinks();
+        return StatCache.load(statCacheFile);
+    }
+
+    private void verifyLinks(){
+        if(!linksFile.exists()){
+            return;
+        }
+        LinkLedger ledger=LinkLedger.load(linksFile);
+        List<String[]> damaged=ledger.verify(workTree,blobsDir);
+        ledger.save();
+        if(!damaged.isEmpty()){
+            StringBuilder message=new StringBuilder();
+            for(String[] file : damaged){
+                message.append(message.length()==0?"":"\n").append("File ").append(file[0])
+                        .append(" was modified in place while hard-linked to blob ").append(file[1])
+                        .append("; the blob no longer matches its ID. Run fsck to list damaged objects.");
+            }
+            throw new GitletException(message.toString());
+        }
+    }
+
+    /** CheckoutWriter运行后 把硬链接到对象库的文件（FILENAMES中）记入LinkLedger */
+    private void recordLinks(CheckoutWriter writer,List<String> fileNames,Map<String,String> blobs){
+        if(writer.linkedFiles().isEmpty()){
+            return;
+        }
+        LinkLedger ledger=LinkLedger.load(linksFile);
+        for(String fileName : fileNames){
+            File file=join(workTree,fileName);
+            if(writer.linkedFiles().contains(file)){
+                ledger.add(fileName,file,blobs.get(fileName));
+            }
+        }
+        ledger.save();
+    }
+
+    /**
+     * FILES中在稀疏检出范围内的文件
+     */
+    private List<String> sparseFiles(List<String> files){
+        SparseCheckout sparse=SparseCheckout.load(sparseFile);
+        if(!sparse.isEnabled()){
+            return files;
+        }
+        return files.stream().filter(sparse::includes).collect(Collectors.toList());
+    }
+
+    /**
+     * sparse-checkout list 命令：稀疏检出的模式  没有设置时为空
+     */
+    public List<String> sparseCheckout(){
+        lock();
+        try {
+            return SparseCheckout.load(sparseFile).patterns();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * sparse-checkout set / disable 命令：设置稀疏检出的模式（为空时关闭稀疏检出） 并更新working dir
+     * 新加入检出范围的被跟踪文件（暂存区中的版本）写入working dir，移出范围的文件从working dir删除；
+     * 要删除的文件有未暂存的修改、或者要写入的位置有内容不同的未跟踪文件时报错 不做任何修改
+     */
+    public void setSparseCheckout(List<String> patterns){
+        lock();
+        try {
+            SparseCheckout old=SparseCheckout.load(sparseFile);
+            SparseCheckout updated=SparseCheckout.of(patterns);
+            Map<String,String> tracked=getNewBlobs(getHeadCommit(),readIndex());
+            StatCache statCache=loadStatCache();
+            //移出检出范围的文件
+            List<String> excluded=new ArrayList<>();
+            for(String fileName : plainFilenamesIn(workTree)){
+                String blobID=tracked.get(fileName);
+                if(blobID!=null && old.includes(fileName) && !updated.includes(fileName)){
+                    if(!blobID.equals(statCache.blobID(join(workTree,fileName),fileName))){
+                        throw new GitletException("Cannot exclude modified file " + fileName + ".");
+                    }
+                    excluded.add(fileName);
+                }
+            }
+            //加入检出范围的文件
+            boolean link="link".equals(Config.load(configFile).get("checkout.mode","copy"));
+            CheckoutWriter writer=new CheckoutWriter(blobsDir,join(gitletDir,"tmp"),chunkStore,link);
+            List<String> included=new ArrayList<>();
+            for(Map.Entry<String,String> entry : tracked.entrySet()){
+                String fileName=entry.getKey();
+                if(old.includes(fileName) || !updated.includes(fileName)){
+                    continue;
+                }
+                File file=join(workTree,fileName);
+                if(file.exists()){
+                    if(!entry.getValue().equals(statCache.blobID(file,fileName))){
+                        throw new GitletException("There is an untracked file in the way; delete it, or add and commit it first.");
+                    }
+                    continue;
+                }
+                writer.add(file,entry.getValue());
+                included.add(fileName);
+            }
+
+            updated.save(sparseFile);
+            for(String fileName : excluded){
+                restrictedDelete(join(workTree,fileName));
+                statCache.remove(fileName);
+            }
+            CheckoutWriter.Stats stats=writer.run();
+            recordLinks(writer,included,tracked);
+            for(String fileName : included){
+                statCache.update(fileName,join(workTree,fileName),tracked.get(fileName));
+            }
+            statCache.save();
+            if(statsOut!=null){
+                statsOut.println(stats);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * status 命令的结果  toString为命令行中打印的格式
+     */
+    public static class Status {
+        public final String currentBranch;
+        /** 所有分支 按名称排序 */
+        public final List<String> branches;
+        public final List<String> staged;
+        public final List<String> removed;
+        /** 被跟踪但在working dir中修改（modified）或删除（deleted）且没有暂存的文件 按文件名排序 */
+        public final SortedMap<String,String> modified;
+        public final List<String> untracked;
+
+        Status(String currentBranch, List<String> branches, List<String> staged, List<String> removed,
+               SortedMap<String,String> modified, List<String> untracked) {
+            this.currentBranch = currentBranch;
+            this.branches = branches;
+            this.staged = staged;
+            this.removed = removed;
+            this.modified = modified;
+            this.untracked = untracked;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("=== Branches ===\n");
+            sb.append("*").append(currentBranch).append("\n");
+            for (String branch : branches) {
+                if (!branch.equals(currentBranch)) {
+                    sb.append(branch).append("\n");
+                }
+            }
+            sb.append("\n=== Staged Files ===\n");
+            for (String stagedFile : staged) {
+                sb.append(stagedFile).append("\n");
+            }
+            sb.append("\n=== Removed Files ===\n");
+            for (String removedFile : removed) {
+                sb.append(removedFile).append("\n");
+            }
+            sb.append("\n=== Modifications Not Staged For Commit ===\n");
+            for (Map.Entry<String, String> entry : modified.entrySet()) {
+                sb.append(entry.getKey()).append(" (").append(entry.getValue()).append(")\n");
+            }
+            sb.append("\n=== Untracked Files ===\n");
+            for (String entry : untracked) {
+                sb.append(entry).append("\n");
+            }
+            sb.append("\n");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * status 命令
+     *
+     * 使用多线程进行优化，暂存区和HEAD commit在共享线程池（Workers）中读取 同时在当前线程中拍摄工作目录快照
+     * 对于一个数量较少（大小110kb）的文件 优化前：110ms   优化后：85ms
+     */
+    public Status status() {
+        lock();
+        try {
+            // Index / HEAD commit: 在共享线程池中读取 与当前线程中的工作目录快照同时进行
+            Future<Index> indexFuture = Workers.submit(this::readIndex);
+            Future<Commit> headFuture = Workers.submit(this::getHeadCommit);
+
+            // Snapshot: 工作目录快照只计算一次 由下面两部分共享
+            HashMap<String, String> snapshot = takeSnapshot();
+
+            // Staged Files / Removed Files
+            Index changes = indexFuture.get();
+            List<String> stagedFiles = new ArrayList<>(changes.staged.keySet());
+            Collections.sort(stagedFiles);
+            List<String> removedFiles = new ArrayList<>(changes.removed.keySet());
+            Collections.sort(removedFiles);
+
+            // Modifications Not Staged For Commit
+            Map<String,String> newBlobs = getNewBlobs(headFuture.get(), changes);
+            TreeMap<String, String> modifiedFiles = new TreeMap<>();
+            SparseCheckout sparse = SparseCheckout.load(sparseFile);
+            for (Map.Entry<String, String> entry : newBlobs.entrySet()) {
+                if (!sparse.includes(entry.getKey())) {
+                    //不在稀疏检出范围内的文件不在working dir中 不报告
+                    continue;
+                }
+                if (snapshot.containsKey(entry.getKey()) && !snapshot.get(entry.getKey()).equals(entry.getValue())) {
+                    modifiedFiles.put(entry.getKey(), "modified");
+                } else if (!snapshot.containsKey(entry.getKey())) {
+                    modifiedFiles.put(entry.getKey(), "deleted");
+                }
+            }
+
+            // Branches: HEAD的缓存在headFuture完成后才读取
+            String curBranch = readHead();
+            List<String> branches = plainFilenamesIn(branchesDir);
+
+            // Untracked Files
+            TreeSet<String> untracked = new TreeSet<>();
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                if (!newBlobs.containsKey(entry.getKey())) {
+                    untracked.add(entry.getKey());
+                }
+            }
+            return new Status(curBranch, branches, stagedFiles, removedFiles, modifiedFiles, new ArrayList<>(untracked));
+        } catch (ExecutionException e) {
+            //任务中的GitletException等运行时异常原样抛出
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GitletException(String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitletException("Interrupted.");
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * diff 命令：working dir 与 HEAD（或COMMITID指定的commit）之间的差异  写入OUT
+     * 只比较被跟踪（commit中或暂存区中）的文件
+     */
+    public void diffWorkingTree(String commitID,OutputStream out){
+        lock();
+        try {
+            Commit headCommit=getHeadCommit();
+            Commit commit=commitID==null?headCommit:getCommitBySHA(commitID);
+            Map<String,String> staged=getNewBlobs(headCommit,readIndex());
+            HashMap<String,String> tracked=new HashMap<>(staged);
+            tracked.putAll(commit.getBlobs());
+            //working dir中文件的blob ID 优先使用stat缓存
+            HashMap<String,String> working=new HashMap<>();
+            StatCache statCache=loadStatCache();
+            SparseCheckout sparse=SparseCheckout.load(sparseFile);
+            for(String fileName : tracked.keySet()){
+                if(!sparse.includes(fileName)){
+                    //不在稀疏检出范围内的文件 视为与暂存区中的版本相同
+                    if(staged.containsKey(fileName)){
+                        working.put(fileName,staged.get(fileName));
+                    }
+                    continue;
+                }
+                String ID=statCache.blobID(join(workTree,fileName),fileName);
+                if(ID!=null){
+                    working.put(fileName,ID);
+                }
+            }
+            statCache.save();
+            writeDiff(commit.getBlobs(),working,true,out);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * diff --cached 命令：暂存区与 HEAD 之间的差异  写入OUT
+     */
+    public void diffCached(OutputStream out){
+        lock();
+        try {
+            Commit headCommit=getHeadCommit();
+            writeDiff(headCommit.getBlobs(),getNewBlobs(headCommit,readIndex()),false,out);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * diff [commit id] [commit id] 命令：两个commit之间的差异  写入OUT
+     */
+    public void diffCommits(String oldID,String newID,OutputStream out){
+        lock();
+        try {
+            writeDiff(getCommitBySHA(oldID).getBlobs(),getCommitBySHA(newID).getBlobs(),false,out);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 按文件名顺序将两组 文件名--blob ID 之间的unified diff写入OUT
+     * blob ID相同的文件不读取内容直接跳过  删除和新增的文件中检测重命名 被修改的文件作为复制的来源
+     * 每个文件的diff在并行流中计算 forEachOrdered保证按文件名顺序输出
+     * NEWISWORKINGTREE为true时 新版本的内容从working dir读取
+     */
+    private void writeDiff(Map<String,String> oldBlobs,Map<String,String> newBlobs,boolean newIsWorkingTree,
+                           OutputStream out){
+        TreeMap<String,String> deleted=new TreeMap<>();
+        TreeMap<String,String> added=new TreeMap<>();
+        TreeMap<String,String> modified=new TreeMap<>();
+        for(Map.Entry<String,String> entry : oldBlobs.entrySet()){
+            String newID=newBlobs.get(entry.getKey());
+            if(newID==null){
+                deleted.put(entry.getKey(),entry.getValue());
+            } else if (!newID.equals(entry.getValue())) {
+                modified.put(entry.getKey(),entry.getValue());
+            }
+        }
+        for(Map.Entry<String,String> entry : newBlobs.entrySet()){
+            if(!oldBlobs.containsKey(entry.getKey())){
+                added.put(entry.getKey(),entry.getValue());
+            }
+        }
+        Function<String[],byte[]> oldLoader=file -> getBlobContent(file[1]);
+        Function<String[],byte[]> newLoader=file -> newIsWorkingTree?readContents(join(workTree,file[0])):getBlobContent(file[1]);
+        int threshold=renameThreshold();
+
+        //新文件名（删除的文件为旧文件名）-- {旧文件名, 新文件名, 说明行...}
+        TreeMap<String,String[]> pairs=new TreeMap<>();
+        for(RenameDetector.Rename rename : RenameDetector.detectRenames(deleted,added,oldLoader,newLoader,threshold)){
+            pairs.put(rename.to,new String[]{rename.from,rename.to,"similarity index "+rename.score+"%",
+                    "rename from "+rename.from,"rename to "+rename.to});
+            deleted.remove(rename.from);
+            added.remove(rename.to);
+        }
+        for(RenameDetector.Rename copy : RenameDetector.detectCopies(oldBlobs,modified,added,oldLoader,newLoader,threshold)){
+            pairs.put(copy.to,new String[]{copy.from,copy.to,"similarity index "+copy.score+"%",
+                    "copy from "+copy.from,"copy to "+copy.to});
+            added.remove(copy.to);
+        }
+        for(String path : modified.keySet()){
+            pairs.put(path,new String[]{path,path});
+        }
+        for(String path : deleted.keySet()){
+            pairs.put(path,new String[]{path,null});
+        }
+        for(String path : added.keySet()){
+            pairs.put(path,new String[]{null,path});
+        }
+        pairs.values().parallelStream()
+                .map(pair -> {
+                    String oldPath=pair[0]!=null?pair[0]:pair[1];
+                    String newPath=pair[1]!=null?pair[1]:pair[0];
+                    String oldID=pair[0]==null?null:oldBlobs.get(pair[0]);
+                    String newID=pair[1]==null?null:newBlobs.get(pair[1]);
+                    byte[] oldContent=oldID==null?null:oldLoader.apply(new String[]{oldPath,oldID});
+                    byte[] newContent=newID==null?null:newLoader.apply(new String[]{newPath,newID});
+                    return UnifiedDiff.format(oldPath,newPath,oldContent,newContent,
+                            Arrays.copyOfRange(pair,2,pair.length));
+                })
+                .forEachOrdered(diff -> {
+                    try {
+                        out.write(diff);
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException(e.getMessage());
+                    }
+                });
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * 检测从OLDBLOBS到NEWBLOBS的重命名（两边都是commit中的blob）
+     */
+    private List<RenameDetector.Rename> detectRenames(Map<String,String> oldBlobs,Map<String,String> newBlobs){
+        HashMap<String,String> deleted=new HashMap<>();
+        HashMap<String,String> added=new HashMap<>();
+        for(Map.Entry<String,String> entry : oldBlobs.entrySet()){
+            if(!newBlobs.containsKey(entry.getKey())){
+                deleted.put(entry.getKey(),entry.getValue());
+            }
+        }
+        for(Map.Entry<String,String> entry : newBlobs.entrySet()){
+            if(!oldBlobs.containsKey(entry.getKey())){
+                added.put(entry.getKey(),entry.getValue());
+            }
+        }
+        Function<String[],byte[]> loader=file -> getBlobContent(file[1]);
+        return RenameDetector.detectRenames(deleted,added,loader,loader,renameThreshold());
+    }
+
+    /**
+     * 重命名检测的相似度阈值（百分比）  由配置项 rename.threshold 设置 大于100时只检测内容完全相同的重命名
+     */
+    private int renameThreshold(){
+        return (int) Config.load(configFile).getLong("rename.threshold",RenameDetector.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * find 命令
+     * 根据message查找commit
+     * 每找到一个 满足查询条件的commit 就把它的ID交给ACTION（不等待全部扫描完成） 返回找到的commit数
+     * 各个fan-out子目录（ID前两位）之间相互独立 用并行流同时读取和匹配
+     * 子目录和文件名均已排序 forEachOrdered按顺序交出结果 顺序与顺序扫描时一致
+     */
+    public long find(CommitQuery query, Consumer<String> action) {
+        lock();
+        try {
+            String[] commitDirs = commitsDir.list();
+            Arrays.sort(commitDirs);
+            AtomicLong found = new AtomicLong();
+            Arrays.stream(commitDirs)
+                    .parallel()
+                    .flatMap(commitDir -> plainFilenamesIn(join(commitsDir, commitDir)).stream()
+                            .map(commit -> commitDir + commit))
+                    // 文件路径--->得到sha1值-->转为commit对象--->判断是否满足查询条件
+                    .filter(ID -> query.matches(getCommitBySHA(ID)))
+                    .forEachOrdered(ID -> {
+                        found.incrementAndGet();
+                        action.accept(ID);
+                    });
+            return found.get();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * checkout --[file name]
+     *记得参数前面加上--
+     * 将 HEAD提交中 的文件版本取出到working dir并覆盖同名文件
+     */
+    public void checkoutFileFromHEAD(String fileName){
+        lock();
+        try {
+            Commit headCommit = getHeadCommit();
+            checkoutFileFromCommit(headCommit,fileName);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 从一个指定commit中取出文件到working dir  commit--blob（hashmap）--sha1（也是路径）--blob文件--读取内容--写入working dir
+     * @param commit
+     * @param fileName
+     */
+    public void checkoutFileFromCommit(Commit commit,String fileName){
+        lock();
+        try {
+            if(!commit.getBlobs().containsKey(fileName)){
+                throw new GitletException("File does not exist in that commit.");
+            }
+            checkoutBlob(fileName,commit.fileVersion(fileName));
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 将blob BLOBID的内容写入working dir中的FILENAME
+     */
+    private void checkoutBlob(String fileName,String blobID){
+        byte[] content=getBlobContent(blobID);
+        //将其写入working dir（文件可能是指向blob的硬链接 先断开）
+        File file=join(workTree,fileName);
+        CheckoutWriter.detach(file);
+        writeContents(file,content);
+    }
+
+    public byte[] readBlobContent(Commit commit,String fileName){
+        return getBlobContent(commit.fileVersion(fileName));
+    }
+
+    /**
+     * checkout --[commit id] --[file name]
+     * 用户可根据commit id 或者是 缩写的commit id 检出指定版本文件
+     */
+    public void checkoutFileFromCommitID(String ID, String fileName) {
+        lock();
+        try {
+
+            if (ID == null || ID.isEmpty()) {
+                throw new GitletException("Commit ID cannot be null or empty.");
+            }
+            if (fileName == null || fileName.isEmpty()) {
+                throw new GitletException("File name cannot be null or empty.");
+            }
+            checkoutFileFromCommit(getCommitBySHA(resolveCommitID(ID)), fileName);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * config 命令（不带参数）：所有配置项 按名称排序
+     */
+    public Map<String,String> config(){
+        lock();
+        try {
+            Config config=Config.load(configFile);
+            Map<String,String> entries=new LinkedHashMap<>();
+            for(String name : config.keys()){
+                entries.put(name,config.get(name,""));
+            }
+            return entries;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * config [key] 命令：配置项KEY的值  没有设置时返回null
+     */
+    public String config(String key){
+        lock();
+        try {
+            return Config.load(configFile).get(key,null);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * config [key] [value] 命令：设置配置项KEY
+     */
+    public void config(String key, String value){
+        lock();
+        try {
+            Config config=Config.load(configFile);
+            config.set(key,value);
+            config.save();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * config --unset [key]
+     */
+    public void unsetConfig(String key){
+        lock();
+        try {
+            Config config=Config.load(configFile);
+            config.unset(key);
+            config.save();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * gc 命令
+     * 从所有分支、暂存区和MERGE_HEAD出发标记可达的对象 删除最后修改时间早于GRACESECONDS秒之前的不可达对象
+     * GRACESECONDS为负数时使用配置项 gc.grace（默认两周）
+     * 同一时间只允许一个gc运行（.gitlet/gc.lock）
+     */
+    public GarbageCollector.Stats gc(long graceSeconds){
+        lock();
+        try {
+            if(graceSeconds<0){
+                graceSeconds=Config.load(configFile).getLong("gc.grace",14L*24*60*60);
+            }
+            File lock=join(gitletDir,"gc.lock");
+            try {
+                if(!lock.createNewFile()){
+                    throw new GitletException("Another gc is already running. If not, remove .gitlet/gc.lock and try again.");
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            try {
+                List<String> rootCommits=new ArrayList<>();
+                for(String branch : plainFilenamesIn(branchesDir)){
+                    rootCommits.add(readContentsAsString(join(branchesDir,branch)));
+                }
+                File mergeHead=join(gitletDir,"MERGE_HEAD");
+                if(mergeHead.exists()){
+                    rootCommits.add(readContentsAsString(mergeHead).trim());
+                }
+                List<String> rootBlobs=GarbageCollector.recent(recentObjectsFile,
+                        System.currentTimeMillis()-graceSeconds*1000);
+                Index stagingArea=readIndex();
+                rootBlobs.addAll(stagingArea.staged.values());
+                rootBlobs.addAll(stagingArea.removed.values());
+
+                GarbageCollector collector=new GarbageCollector(commitsDir,blobsDir,manifestsDir,chunksDir);
+                GarbageCollector.Stats stats=collector.collect(rootCommits,rootBlobs,graceSeconds*1000);
+                if(stats.removedCommits()){
+                    commitIndex.rebuild();
+                    commitIndex.close();
+                    commitGraph.invalidate();
+                    Blame.clearCache(blameCacheDir);
+                }
+                return stats;
+            } finally {
+                lock.delete();
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * fsck 命令
+     * 重新计算所有blob和块的SHA-1 检查每个commit能否读取、parent和blob是否存在，
+     * 返回损坏（corrupt）、丢失（missing）和没有被引用（dangling）的对象以及吞吐量
+     */
+    public Fsck.Report fsck(){
+        lock();
+        try {
+            Map<String,String> refs=new TreeMap<>();
+            for(String branch : plainFilenamesIn(branchesDir)){
+                refs.put("branch "+branch,readContentsAsString(join(branchesDir,branch)));
+            }
+            File mergeHead=join(gitletDir,"MERGE_HEAD");
+            if(mergeHead.exists()){
+                refs.put("MERGE_HEAD",readContentsAsString(mergeHead).trim());
+            }
+            List<String> rootBlobs=new ArrayList<>();
+            Index stagingArea=readIndex();
+            rootBlobs.addAll(stagingArea.staged.values());
+            rootBlobs.addAll(stagingArea.removed.values());
+
+            return new Fsck(commitsDir,blobsDir,manifestsDir,chunksDir).check(refs,rootBlobs);
+        } finally {
+            unlock();
+        }
+    }
+
+    public boolean branchExists(String branch){
+        File branchFile=join(branchesDir,branch);
+        return branchFile.exists();
+    }
+
+    /**
+     * 检查working dir中未跟踪（untracked）的文件是否会被TargetCommit覆盖  如果会则报错
+     * @param snapShot
+     * @param newBlobs
+     * @param targetCommit
+     */
+    private void checkUntrackedOverwritten(List<String> snapShot, Map<String, String> newBlobs, Commit targetCommit) {
+        if (snapShot == null || newBlobs == null || targetCommit == null) {
+            throw new IllegalArgumentException("Input parameters cannot be null");
+        }
+        for (String fileName : snapShot) {
+            File file = join(workTree, fileName);
+            if (!file.isFile()) continue; // 忽略目录
+            if (!newBlobs.containsKey(fileName) && targetCommit.tracks(fileName)) {
+                throw new GitletException(
+                        "Untracked file '" + fileName + "' would be overwritten by checkout. Delete it, or add and commit it first."
+                );
+            }
+        }
+    }
+
+    //根据blob文件的id（sha-1）读取  所有读取blob内容的地方都经过这里：原始内容不存在时从分块拼接
+    public byte[] getBlobContent(String blobID){
+        File blob=join(blobsDir,blobID.substring(0,2),blobID.substring(2));
+        if(!blob.isFile() && chunkStore.contains(blobID)){
+            return chunkStore.read(blobID);
+        }
+        return readContents(blob);
+    }
+    /**
+     * 将工作目录切换到targetCommit
+     * 只写入blob ID与HEAD不同的文件：HEAD和targetCommit中版本相同 且工作目录中的文件没有被修改（由stat缓存判断）时直接跳过
+     * 写入的文件同时刷新stat缓存 之后的status不需要重新计算它们的SHA-1
+     * 需要写入的文件由CheckoutWriter并行写出
+     */
+    public void checkoutCommit(Commit targetCommit){
+        lock();
+        try {
+            //获取newBlobs 和 snapshot
+            Commit headCommit = getHeadCommit();
+            Index changes=readIndex();
+            Map<String,String> newBlobs = getNewBlobs(headCommit, changes);
+            //这里用到的的snapshot区别于下面的snapshot，这里只需要文件名，而下方的是blob对象
+            // HashMap<String, String> snapShot = takeSnapshot();
+            //不在稀疏检出范围内的文件既不写入也不删除
+            SparseCheckout sparse=SparseCheckout.load(sparseFile);
+            List<String> snapShot=sparseFiles(plainFilenamesIn(workTree));
+
+            //检查未跟踪的文件是否会被覆盖
+            checkUntrackedOverwritten(snapShot,newBlobs,targetCommit);
+
+            StatCache statCache=loadStatCache();
+            //删除不再被targetCommit追踪的文件
+            for(String fileName : snapShot){
+                if(headCommit.tracks(fileName) && !targetCommit.tracks(fileName) ){
+                    restrictedDelete(join(workTree,fileName));
+                    statCache.remove(fileName);
+                }
+            }
+            //将targetCommit中与HEAD版本不同（或在工作目录中被修改）的文件写入到工作目录
+            boolean link="link".equals(Config.load(configFile).get("checkout.mode","copy"));
+            CheckoutWriter writer=new CheckoutWriter(blobsDir,join(gitletDir,"tmp"),chunkStore,link);
+            List<String> written=new ArrayList<>();
+            for(Map.Entry<String,String> entry : targetCommit.getBlobs().entrySet()){
+                String fileName=entry.getKey();
+                String blobID = entry.getValue();
+                File blobFile=join(workTree,fileName);
+                if(!sparse.includes(fileName)){
+                    continue;
+                }
+                if(blobID.equals(headCommit.fileVersion(fileName))
+                        && blobID.equals(statCache.blobID(blobFile,fileName))){
+                    continue;
+                }
+                writer.add(blobFile,blobID);
+                written.add(fileName);
+            }
+            CheckoutWriter.Stats stats=writer.run();
+            recordLinks(writer,written,targetCommit.getBlobs());
+            for(String fileName : written){
+                statCache.update(fileName,join(workTree,fileName),targetCommit.fileVersion(fileName));
+            }
+            statCache.save();
+            if(statsOut!=null){
+                statsOut.println(stats);
+            }
+            //清空并保存暂存区
+            changes.clear();
+            writeIndex(changes);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * checkout [branch name]
+     * precheck-->获取目标分支的最新commit-->切换到targetCommit-->更新HEAD
+     */
+    public void checkoutBranch(String branch){
+        /** Precheck. */
+        lock();
+        try {
+            if(!branchExists(branch)){
+                throw new GitletException("No such branch exists.");
+            }
+            String curBranch=readHead();
+            if(curBranch.equals(branch)){
+                throw new GitletException("No need to checkout the current branch.");
+            }
+            //checkout
+            Commit targetCommit=getCommitBySHA(getHeadCommitID(branch));
+            checkoutCommit(targetCommit);
+            //update HEAD
+            writeHead(branch);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * branch [branch name] 命令
+     * 该命令只包含创建分支
+     */
+    public void newBranch(String branchName){
+        lock();
+        try {
+            File branch=join(branchesDir,branchName);
+            if(branch.exists()){
+                throw new GitletException("A branch with that name already exists.");
+            }
+            //新分支指向当前分支的最新提交
+            updateBranch(branchName,getHeadCommitID(readHead()));
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * rm branch [branch name] 命令
+     * TODO : 1. 删除分支前检查是否合并，警告合并后再删除
+     * TODO： 2. 删除分支后存在悬空commit 可通过实现垃圾回收  参考git中设计
+     * 只需要删除该分支的指针 不需要删除这个分支下的commit
+     */
+    public void removeBranch(String branchName){
+        lock();
+        try {
+            File branch=join(branchesDir,branchName);
+            if(!branch.exists()){
+                throw new GitletException("A branch with that name does not exist.");
+            }
+            if(readHead().equals(branchName)){
+                throw new GitletException("Cannot remove the current branch.");
+            }
+            branch.delete();
+            branchCache.remove(branchName);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * reset [commit id] 命令
+     */
+    public void reset(String commitID){
+        lock();
+        try {
+            //将传入的(可能是缩写的)commitID解析为完整ID  不存在时报错
+            commitID=resolveCommitID(commitID);
+            //复用checkout命令中用到的checkoutCommit方法
+            checkoutCommit(getCommitBySHA(commitID));
+            String curBranch=readHead();
+            updateBranch(curBranch,commitID);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * merge 命令的结果  MESSAGE为命令行中打印的提示（直接完成的merge没有提示）
+     */
+    public enum MergeResult {
+        /** 给定分支是当前分支的祖先 不需要合并 */
+        ALREADY_MERGED("Given branch is an ancestor of the current branch."),
+        /** 当前分支快进到给定分支 */
+        FAST_FORWARD("Current branch fast-forwarded."),
+        /** 有冲突 合并结果已写入working dir和暂存区 解决后commit */
+        CONFLICT("Encountered a merge conflict."),
+        /** 已创建merge commit */
+        MERGED(null);
+
+        public final String message;
+
+        MergeResult(String message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * merge [branch name] 命令
+     * 在给定分支中修改过  在当前分支未修改 --->改为给定分支【branch name】中的版本
+     *
+     */
+    public MergeResult merge(String branchName){
+        /** Precheck */
+        lock();
+        try {
+            File branch=join(branchesDir,branchName);
+            if(!branch.exists()){
+                throw new GitletException("A branch with that name does not exist.");
+            }
+            String curBranch=readHead();
+            if(branchName.equals(curBranch)){
+                throw new GitletException("Cannot merge a branch with itself.");
+            }
+            Index changes=readIndex();
+            if(!changes.isEmpty()){
+                throw new GitletException("You have uncommitted changes.");
+            }
+
+            /** 确定 拆分点
+             * 这里先判断两种特殊情况：
+             * 1.given branch 落后于 cur branch-->given branch的headCommit是cur branch的祖先--->不需要merge given branch 直接返回
+             * 2.cur branch 落后于 given branch-->说明当前分支的headCommit时given branch 的祖先--->快速合并--->将cur branch的head指向given branch的head
+             */
+            String splitPointID=getSplitPointID(branchName); //拆分点
+            String curCommitID= getHeadCommitID(curBranch);  //cur branch的head
+            String mergedCommitID=getHeadCommitID(branchName);  //given branch的head
+            if(mergedCommitID.equals(splitPointID)) {//上述情况1
+                return MergeResult.ALREADY_MERGED;
+            }
+            if(splitPointID.equals(curCommitID)){//上述情况2 :执行快进合并
+                //更新工作目录：由于working dir中是cur branch的head commit内容，故先将given branch的head commit内容checkout到working dir中
+                checkoutCommit(getCommitBySHA(mergedCommitID));
+                //更新head: 将cur branch的head指向given branch的head
+                updateBranch(curBranch,mergedCommitID);
+                return MergeResult.FAST_FORWARD;
+            }
+
+            /** 一般情况 */
+            Commit splitPoint=getCommitBySHA(splitPointID);
+            Commit curCommit=getCommitBySHA(curCommitID);
+            Commit mergedCommit=getCommitBySHA(mergedCommitID);
+
+            //检查是否有未跟踪文件 有则报错
+            checkUntrackedOverwritten(sparseFiles(plainFilenamesIn(workTree)),curCommit.getBlobs(),mergedCommit);
+            //不在稀疏检出范围内的文件只更新暂存区 不写入也不删除working dir中的文件（冲突的文件除外）
+            SparseCheckout sparse=SparseCheckout.load(sparseFile);
+
+            //三个版本的文件一次遍历完成分类 再分别处理
+            //两个分支中相对于拆分点重命名的文件 对齐到原文件名后再分类
+            List<MergeEngine.Change> mergeChanges=MergeEngine.classify(
+                    splitPoint.getBlobs(),curCommit.getBlobs(),mergedCommit.getBlobs(),
+                    detectRenames(splitPoint.getBlobs(),curCommit.getBlobs()),
+                    detectRenames(splitPoint.getBlobs(),mergedCommit.getBlobs()));
+            List<MergeEngine.Change> bothModified=new ArrayList<>();
+            for(MergeEngine.Change change : mergeChanges){
+                if(!change.oursPath.equals(change.path)){
+                    //给定分支中重命名了的文件：从当前分支中的原文件名移到新文件名
+                    changes.removed.put(change.oursPath,change.ours);
+                    if(sparse.includes(change.oursPath)){
+                        restrictedDelete(join(workTree,change.oursPath));
+                    }
+                }
+                switch (change.action){
+                    case KEEP_OURS:
+                        //内容不变 只需要移动到新文件名
+                        if(!change.oursPath.equals(change.path)){
+                            if(sparse.includes(change.path)){
+                                checkoutBlob(change.path,change.ours);
+                            }
+                            changes.staged.put(change.path,change.ours);
+                        }
+                        break;
+                    case TAKE_THEIRS:
+                        //合并分支中修改或添加的文件：检出到working dir 并添加到staging area
+                        if(sparse.includes(change.path)){
+                            checkoutBlob(change.path,change.theirs);
+                        }
+                        changes.staged.put(change.path,change.theirs);
+                        break;
+                    case DELETE:
+                        //合并分支中删除的文件：存到staging area的removed中 并从working dir中删除
+                        changes.removed.put(change.path,change.ours);
+                        if(sparse.includes(change.path)){
+                            restrictedDelete(join(workTree,change.path));
+                        }
+                        break;
+                    default:
+                        //两个分支中以不同方式修改的文件
+                        bothModified.add(change);
+                }
+            }
+            //两边都修改过的文件先按行合并 只有修改区域重叠的部分才是冲突
+            //合并结果流式写入文件（在稀疏检出范围内时直接写入working dir 否则写入临时文件MERGE_RESULT） 再从文件保存blob
+            //内存中只有行级diff需要随机访问的三个版本 合并结果不在内存中缓存
+            boolean conflicted=false;
+            File mergeResult=join(gitletDir,"MERGE_RESULT");
+            for(MergeEngine.Change change : bothModified){
+                File file=join(workTree,change.path);
+                boolean inSparse=sparse.includes(change.path);
+                File target=inSparse?file:mergeResult;
+                int conflictHunks=mergeFileContent(change,branchName,target);
+                String ID;
+                if(conflictHunks<0){
+                    //无法按行合并：将两个版本的完整内容作为冲突信息写入文件
+                    writeConflict(change.path,branchName,change.ours,change.theirs);
+                    ID=saveBlob(file);
+                } else {
+                    ID=saveBlob(target);
+                    //有冲突的文件即使不在稀疏检出范围内也写入working dir 以便解决冲突
+                    if(!inSparse && conflictHunks>0){
+                        file.getParentFile().mkdirs();
+                        try {
+                            Files.move(mergeResult.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING);
+                        } catch (IOException e) {
+                            throw new IllegalArgumentException(e.getMessage());
+                        }
+                    }
+                }
+                mergeResult.delete();
+                if(conflictHunks!=0){
+                    conflicted=true;
+                }
+                //将合并结果（可能含冲突标记）添加到暂存区  便于解决冲突后重新提交
+                changes.staged.put(change.path,ID);
+            }
+            if(conflicted) {
+                //将给定分支的 HEAD commit ID 写入临时文件（例如 MERGE_HEAD）。
+                writeContents(join(gitletDir, "MERGE_HEAD"), mergedCommitID);
+                writeIndex(changes);
+                return MergeResult.CONFLICT;
+            }
+
+            //创建新的commit
+            Commit mergeCommit=new Commit(
+                    new Date(),
+                    "Merged " + branchName + " into " + curBranch + ".",
+                    new String[] {curCommitID,mergedCommitID},
+                    getNewBlobs(curCommit,changes)
+            );
+            String newID=saveCommit(mergeCommit);
+            //更新HEAD
+            updateBranch(curBranch,newID);
+            //清理和保存
+            changes.clear();
+            writeIndex(changes);
+            return MergeResult.MERGED;
+        } finally {
+            unlock();
+        }
+    }
+
+    /** 得到 given branch 和cur branch 的拆分点的SHA-1值
+     * 由commit图中两个分支最新commit的可达性位图求交集得到 不需要遍历commit对象
+     */
+    public String getSplitPointID(String branchName){
+        lock();
+        try {
+            String curID=getHeadCommitID(readHead());
+            String givenID=getHeadCommitID(branchName);
+            return commitGraph.mergeBase(curID,givenID);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * is-ancestor [commit id] [commit id]
+     * 第一个commit是否为第二个commit的祖先（同一个commit也视为祖先）
+     */
+    public boolean isAncestor(String ancestorID, String descendantID){
+        lock();
+        try {
+            String ancestor=resolveCommitID(ancestorID);
+            String descendant=resolveCommitID(descendantID);
+            return commitGraph.isAncestor(ancestor,descendant);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * rev-count [commit id] [commit id]
+     * 可以从第一个commit到达 但不能从第二个commit到达的commit数
+     */
+    public int revCount(String fromID, String exceptID){
+        lock();
+        try {
+            String from=resolveCommitID(fromID);
+            String except=resolveCommitID(exceptID);
+            return commitGraph.countOnlyIn(from,except);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 对两个分支都修改过的文件做行级三路合并（以拆分点中的版本为base） 结果流式写入文件TARGET
+     * 返回冲突块的数量 0表示自动合并成功
+     * 文件在一边被删除或是二进制文件时无法按行合并 不写入TARGET 返回-1
+     */
+    private int mergeFileContent(MergeEngine.Change change, String branchName, File target) {
+        if (change.ours == null || change.theirs == null) {
+            return -1;
+        }
+        byte[] base = change.base == null ? null : getBlobContent(change.base);
+        byte[] ours = getBlobContent(change.ours);
+        byte[] theirs = getBlobContent(change.theirs);
+        if (ContentMerge.isBinary(ours) || ContentMerge.isBinary(theirs)
+                || (base != null && ContentMerge.isBinary(base))) {
+            return -1;
+        }
+        CheckoutWriter.detach(target);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target), 1 << 16)) {
+            return ContentMerge.merge(base, ours, theirs, "HEAD", branchName, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * 将两个版本的完整内容作为冲突信息写入FILENAME  CURID/MERGEDID为两个分支中的blob ID 被删除时为null
+     */
+    private void writeConflict(String fileName, String branchName, String curID, String mergedID) {
+        StringBuilder returnSB = new StringBuilder();
+        File conflictFile = join(workTree, fileName);
+        returnSB.append("<<<<<<< HEAD\n");
+        String curContent = curID != null ? new String(getBlobContent(curID), StandardCharsets.UTF_8) : "(file deleted)";
+        returnSB.append(curContent);
+        returnSB.append("\n=======\n");
+        String mergedContent = mergedID != null ? new String(getBlobContent(mergedID), StandardCharsets.UTF_8) : "(file deleted)";
+        returnSB.append(mergedContent);
+        returnSB.append("\n>>>>>>> " + branchName + "\n");
+        CheckoutWriter.detach(conflictFile);
+        writeContents(conflictFile, returnSB.toString());
+    }
+}
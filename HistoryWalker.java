@@ -0,0 +1,84 @@
+package gitlet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 按给定顺序读取一串commit（或由commit得到的对象） 并提前读取后面的若干个
+ *
+ * 逐个读取时每个commit都要等待 打开文件-反序列化 完成才能处理下一个，冷缓存或网络文件系统上耗时主要是等待I/O。
+ * 历史的顺序由commit图给出（不需要先读出commit才知道下一个parent），因此这里在共享线程池（Workers）中
+ * 同时读取之后的至多DEPTH个commit，调用者处理当前commit（例如格式化输出）时后面的读取已经在进行。
+ * 未取走的结果最多DEPTH个：调用者每取走一个才提交下一个读取 不会一次把整个历史读入内存。
+ *
+ * 读取函数会在多个线程中同时调用 只能使用线程安全的操作（getCommitBySHA读取文件和CommitCache 可以并发）。
+ * 提前结束时应close 取消尚未开始的读取。
+ */
+class HistoryWalker<T> implements Iterator<T>, AutoCloseable {
+
+    /** 同时进行的读取数 */
+    static final int DEPTH = Math.min(16, Workers.MAX_CONCURRENCY);
+
+    private final List<String> IDs;
+    private final Function<String, T> reader;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+    /** 下一个要提交读取的下标 */
+    private int next;
+
+    HistoryWalker(List<String> IDs, Function<String, T> reader) {
+        this.IDs = IDs;
+        this.reader = reader;
+        fill();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pending.isEmpty();
+    }
+
+    /** 下一个commit的读取结果  读取时的异常原样抛出 */
+    @Override
+    public T next() {
+        if (pending.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Future<T> result = pending.poll();
+        fill();
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException(String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new GitletException("Interrupted.");
+        }
+    }
+
+    /** 取消还没有取走的读取 */
+    @Override
+    public void close() {
+        for (Future<T> result : pending) {
+            result.cancel(false);
+        }
+        pending.clear();
+        next = IDs.size();
+    }
+
+    private void fill() {
+        while (pending.size() < DEPTH && next < IDs.size()) {
+            String ID = IDs.get(next++);
+            pending.add(Workers.submit(() -> reader.apply(ID)));
+        }
+    }
+}
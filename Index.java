@@ -4,12 +4,16 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
-import static gitlet.Repository.INDEX;
 import static gitlet.Utils.*;
 
 public class Index implements Serializable {
+    /** 固定序列化版本号 避免以后修改本类时已有的INDEX无法读取 */
+    private static final long serialVersionUID = 5508316047810767371L;
+
     public HashMap<String, String> staged;
     public HashMap<String, String> removed;
+    /** 读取自（保存到）的文件  不参与序列化 */
+    private transient File indexFile;
 
     Index() {
         staged = new HashMap<>();
@@ -26,13 +30,13 @@ public class Index implements Serializable {
     }
 
     public void save() {
-        writeObject(INDEX, this);
+        writeObject(indexFile, this);
     }
 
-    public static Index getStagingArea() {
-        if (INDEX.exists()) {
-            return readObject(INDEX, Index.class);
-        }
-        return new Index();
+    /** 读取INDEXFILE中的暂存区  文件不存在时返回空的暂存区 save时写回同一个文件 */
+    public static Index getStagingArea(File indexFile) {
+        Index index = indexFile.exists() ? readObject(indexFile, Index.class) : new Index();
+        index.indexFile = indexFile;
+        return index;
     }
 }
@@ -0,0 +1,133 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static gitlet.Utils.*;
+
+/**
+ * link模式检出的硬链接记录（.gitlet/links）  fileName -- (blob ID, 链接后inode的ctime)
+ *
+ * 硬链接的工作目录文件与对象库中的blob是同一个inode：只读权限可以被文件所有者改回 root也不受它限制，
+ * 在原地修改工作目录中的文件就会改动已保存的对象。ctime由内核维护 任何写入、改权限、增删链接都会更新它，
+ * 用户无法把它改回去。因此每个硬链接都记录链接后的ctime，verify时ctime有变化的blob重新计算SHA-1：
+ * 内容没变（例如只是增删了链接）则更新记录；内容变了说明对象已被修改 原内容已经无法恢复，
+ * 报告是哪个文件、哪个对象并删除这条记录。对象本身留在对象库中（不删除 否则损坏的对象会变成缺失的对象），
+ * 之后由fsck报告它的哈希不匹配；工作目录中的文件保留修改后的内容。
+ * 工作目录中的文件已不再链接到该对象时（被删除或被编辑器替换）删除记录。
+ * 无法读取ctime的文件系统上不使用硬链接（见CheckoutWriter）。
+ */
+class LinkLedger implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static class Link implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String blobID;
+        long ctime;
+
+        Link(String blobID, long ctime) {
+            this.blobID = blobID;
+            this.ctime = ctime;
+        }
+    }
+
+    private final HashMap<String, Link> links = new HashMap<>();
+
+    private transient File ledgerFile;
+    private transient boolean dirty;
+
+    /** 从LEDGERFILE读取记录 不存在或无法读取时返回空记录 */
+    static LinkLedger load(File ledgerFile) {
+        LinkLedger ledger = null;
+        if (ledgerFile.exists()) {
+            try {
+                ledger = readObject(ledgerFile, LinkLedger.class);
+            } catch (IllegalArgumentException e) {
+                //记录损坏时丢弃 之后只能由fsck发现被修改的对象
+                ledger = null;
+            }
+        }
+        if (ledger == null) {
+            ledger = new LinkLedger();
+        }
+        ledger.ledgerFile = ledgerFile;
+        return ledger;
+    }
+
+    /** 工作目录中的FILE（文件名FILENAME）刚被硬链接到blob BLOBID后调用 */
+    void add(String fileName, File file, String blobID) {
+        links.put(fileName, new Link(blobID, ctime(file)));
+        dirty = true;
+    }
+
+    /**
+     * 检查所有记录的硬链接（工作目录为WORKTREE 对象库中的blob在BLOBSDIR中）
+     * 返回被修改过的对象 每项为 {文件名, blob ID}；这些记录已删除 对象保留在对象库中
+     */
+    List<String[]> verify(File workTree, File blobsDir) {
+        List<String[]> damaged = new ArrayList<>();
+        Map<String, Boolean> intact = new HashMap<>();
+        Iterator<Map.Entry<String, Link>> it = links.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Link> entry = it.next();
+            Link link = entry.getValue();
+            File blob = join(blobsDir, link.blobID.substring(0, 2), link.blobID.substring(2));
+            if (!blob.isFile()) {
+                it.remove();
+                dirty = true;
+                continue;
+            }
+            long ctime = ctime(blob);
+            if (ctime == link.ctime) {
+                continue;
+            }
+            if (!intact.computeIfAbsent(link.blobID, ID -> ID.equals(ChunkStore.sha1(blob)))) {
+                damaged.add(new String[]{entry.getKey(), link.blobID});
+                it.remove();
+            } else if (sameFile(join(workTree, entry.getKey()), blob)) {
+                link.ctime = ctime;
+            } else {
+                it.remove();
+            }
+            dirty = true;
+        }
+        return damaged;
+    }
+
+    /** 有变化时写回记录文件 */
+    void save() {
+        if (!dirty) {
+            return;
+        }
+        writeObject(ledgerFile, this);
+        dirty = false;
+    }
+
+    /** FILE的inode的ctime（纳秒）  文件系统不支持时抛出UnsupportedOperationException */
+    static long ctime(File file) {
+        try {
+            Object ctime = Files.getAttribute(file.toPath(), "unix:ctime");
+            return ((FileTime) ctime).to(TimeUnit.NANOSECONDS);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new UnsupportedOperationException(e.getMessage());
+        }
+    }
+
+    private static boolean sameFile(File a, File b) {
+        try {
+            return a.isFile() && Files.isSameFile(a.toPath(), b.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -1,12 +1,30 @@
 package gitlet;
 
-//import static gitlet.Repository.GITLET_DIR;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 /** Driver class for Gitlet, a subset of the Git version-control system.
  *  @author Shuyuan Wang
  */
 public class Main {
 
+    //--stats 选项
+    private static boolean showStats = false;
+    //正在执行batch中的命令
+    private static boolean inBatch = false;
+    //命令正常结束后的退出码  fsck发现错误时为1（batch中任一行发现错误时整个batch的退出码为1）
+    private static int exitStatus = 0;
+
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND1> <OPERAND2> ...
      */
@@ -16,82 +34,410 @@ public class Main {
             System.exit(0);
         }
 
-        String firstArg = args[0];
-        switch(firstArg) {
+        String[] operands = parseGlobalOptions(args);
+        if (operands.length == 0) {
+            System.out.println("Please enter a command.");
+            System.exit(0);
+        }
+
+        String firstArg = operands[0];
+        Trace.beginCommand(firstArg);
+        try {
+            run(operands);
+        } catch (GitletException e) {
+            System.out.println(e.getMessage());
+            System.exit(0);
+        }
+        Trace.endCommand();
+        if (exitStatus != 0) {
+            System.exit(exitStatus);
+        }
+    }
+
+    /**
+     * 检查参数后在当前目录的仓库上执行命令 打印结果
+     * 命令的错误以GitletException抛出 由main打印
+     */
+    private static void run(String[] args) {
+        File cwd = new File(System.getProperty("user.dir"));
+        if (args[0].equals("batch")) {
+            if (args.length > 2) {
+                throw incorrectOperands();
+            }
+            runBatch(args.length == 2 ? new File(args[1]) : null, cwd);
+            return;
+        }
+        Consumer<GitletRepository> command = parseCommand(args, cwd);
+        if (command != null) {
+            try (GitletRepository repo = GitletRepository.open(cwd)) {
+                repo.setStatsOutput(showStats ? System.out : null);
+                command.accept(repo);
+            }
+        }
+    }
+
+    /**
+     * batch [file] 命令：从FILE（没有时从标准输入）逐行读取命令 在同一个进程中依次执行
+     *
+     * 每行是一个命令（不含java gitlet.Main） 参数以空白分隔，可以用单引号或双引号包含空白，
+     * 引号外和双引号中可以用反斜杠转义；空行和以#开头的行被忽略。
+     * 所有命令共用一个以批处理模式打开的仓库：暂存区、HEAD、分支和commit在命令之间一直缓存在内存中，
+     * 暂存区和commit位图只在结束时写回一次。某个命令出错时打印错误信息 然后继续执行下一行，
+     * 与逐个运行这些命令的结果相同。
+     */
+    private static void runBatch(File script, File cwd) {
+        GitletRepository repo = null;
+        inBatch = true;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                script == null ? System.in : openScript(script), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] args;
+                try {
+                    args = splitCommandLine(line);
+                } catch (GitletException e) {
+                    System.out.println(e.getMessage());
+                    continue;
+                }
+                if (args.length == 0) {
+                    continue;
+                }
+                Trace.beginCommand(args[0]);
+                try {
+                    if (args[0].equals("batch")) {
+                        throw new GitletException("Cannot run batch inside batch.");
+                    }
+                    Consumer<GitletRepository> command = parseCommand(args, cwd);
+                    if (command != null) {
+                        if (repo == null) {
+                            repo = GitletRepository.open(cwd);
+                            repo.setBatchMode(true);
+                            repo.setStatsOutput(showStats ? System.out : null);
+                        }
+                        command.accept(repo);
+                    }
+                } catch (RuntimeException e) {
+                    //除GitletException外 Utils和对象库对无法处理的文件等抛出IllegalArgumentException 同样只结束这一行
+                    System.out.println(e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+                Trace.endCommand();
+            }
+        } catch (IOException e) {
+            throw new GitletException("Error reading batch script: " + e.getMessage());
+        } finally {
+            inBatch = false;
+            if (repo != null) {
+                repo.close();
+            }
+        }
+    }
+
+    private static InputStream openScript(File script) {
+        try {
+            return new FileInputStream(script);
+        } catch (IOException e) {
+            throw new GitletException("Batch script does not exist.");
+        }
+    }
+
+    /**
+     * 把batch中的一行拆分为参数  空行和注释行返回空数组
+     */
+    private static String[] splitCommandLine(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = null;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '\\' && i + 1 < line.length()) {
+                if (current == null) {
+                    current = new StringBuilder();
+                }
+                current.append(line.charAt(++i));
+            } else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                if (current == null) {
+                    current = new StringBuilder();
+                }
+                quote = c;
+            } else if (Character.isWhitespace(c)) {
+                if (current != null) {
+                    args.add(current.toString());
+                    current = null;
+                }
+            } else if (c == '#' && current == null) {
+                break;
+            } else {
+                if (current == null) {
+                    current = new StringBuilder();
+                }
+                current.append(c);
+            }
+        }
+        if (quote != 0) {
+            throw new GitletException("Unterminated quote.");
+        }
+        if (current != null) {
+            args.add(current.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * 检查ARGS 返回在仓库上执行该命令并打印结果的操作
+     * init和clone不在CWD中已有的仓库上执行 直接完成后返回null
+     */
+    private static Consumer<GitletRepository> parseCommand(String[] args, File cwd) {
+        Consumer<GitletRepository> command = null;
+        switch(args[0]) {
             case "init":
                 validateNumArgs(args, 1);
-                Repository.init();
+                GitletRepository.init(cwd).close();
+                break;
+            case "clone":
+                validateNumArgs(args, 3);
+                try (GitletRepository source = GitletRepository.open(cwd.toPath().resolve(args[1]).toFile())) {
+                    source.setStatsOutput(showStats ? System.out : null);
+                    source.cloneTo(cwd.toPath().resolve(args[2]).toFile()).close();
+                }
                 break;
             case "add":
                 validateNumArgs(args, 2);
-                Repository.add(args[1]);
+                command = repo -> repo.add(args[1]);
                 break;
             case "commit":
                 validateNumArgs(args, 2);
-                Repository.commit(args[1]);
+                command = repo -> {
+                    boolean merging = repo.isMerging();
+                    repo.commit(args[1]);
+                    if (merging) {
+                        System.out.println("Merge commit completed");
+                    }
+                };
                 break;
             case "rm":
                 validateNumArgs(args, 2);
-                Repository.remove(args[1]);
+                command = repo -> repo.remove(args[1]);
                 break;
             case "log":
-                validateNumArgs(args, 1);
-                Repository.log();
+                if (args.length == 1) {
+                    command = repo -> repo.log().forEach(System.out::print);
+                } else if (args.length == 3 && args[1].equals("--")) {
+                    command = repo -> repo.log(args[2]).forEach(System.out::print);
+                } else {
+                    throw new GitletException("Incorrect operands.");
+                }
+                break;
+            case "blame":
+                validateNumArgs(args, 2);
+                command = repo -> System.out.print(repo.blame(args[1]));
+                break;
+            case "archive":
+                int threads = Runtime.getRuntime().availableProcessors();
+                int first = 1;
+                if (args.length == 5 && args[1].equals("--threads")) {
+                    try {
+                        threads = Integer.parseInt(args[2]);
+                    } catch (NumberFormatException e) {
+                        throw new GitletException("Invalid thread count: " + args[2]);
+                    }
+                    first = 3;
+                } else if (args.length != 3) {
+                    throw incorrectOperands();
+                }
+                String archiveID = args[first];
+                File archiveFile = cwd.toPath().resolve(args[first + 1]).toFile();
+                int archiveThreads = threads;
+                command = repo -> repo.archive(archiveID, archiveFile, archiveThreads);
                 break;
             case "global-log":
                 validateNumArgs(args, 1);
-                Repository.globalLog();
+                command = repo -> repo.globalLog().forEach(System.out::print);
                 break;
             case "status":
                 validateNumArgs(args, 1);
-                Repository.status();
+                command = repo -> System.out.println(repo.status());
                 break;
             case "find":
-                validateNumArgs(args, 2);
-                Repository.find(args[1]);
+                if (args.length < 2) {
+                    throw incorrectOperands();
+                }
+                command = repo -> {
+                    //匹配的commit一找到就打印
+                    long found = repo.find(CommitQuery.parse(Arrays.copyOfRange(args, 1, args.length)),
+                            System.out::println);
+                    if (found == 0) {
+                        throw new GitletException("Found no commit with that message.");
+                    }
+                    //与原来的输出相同：ID之后有两个空行
+                    System.out.println();
+                    System.out.println();
+                };
                 break;
             case "checkout":
                 if (args.length == 2) {
-                    Repository.checkoutBranch(args[1]);
+                    command = repo -> repo.checkoutBranch(args[1]);
                 } else if (args.length == 3) {
                     if (!args[1].equals("--")) {
-                        System.out.println("Incorrect operands.");
-                        System.exit(0);
+                        throw new GitletException("Incorrect operands.");
                     }
-                    Repository.checkoutFileFromHEAD(args[2]);
+                    command = repo -> repo.checkoutFileFromHEAD(args[2]);
                 } else if (args.length == 4) {
                     if (!args[2].equals("--")) {
-                        System.out.println("Incorrect operands.");
-                        System.exit(0);
+                        throw new GitletException("Incorrect operands.");
                     }
-                    Repository.checkoutFileFromCommitID(args[1], args[3]);
+                    command = repo -> repo.checkoutFileFromCommitID(args[1], args[3]);
                 }
                 break;
             case "branch":
                 validateNumArgs(args, 2);
-                Repository.newBranch(args[1]);
+                command = repo -> repo.newBranch(args[1]);
                 break;
             case "rm-branch":
                 validateNumArgs(args, 2);
-                Repository.removeBranch(args[1]);
+                command = repo -> repo.removeBranch(args[1]);
                 break;
             case "reset":
                 validateNumArgs(args, 2);
-                Repository.reset(args[1]);
+                command = repo -> repo.reset(args[1]);
                 break;
             case "merge":
                 validateNumArgs(args, 2);
-                Repository.merge(args[1]);
+                command = repo -> {
+                    GitletRepository.MergeResult result = repo.merge(args[1]);
+                    if (result.message != null) {
+                        System.out.println(result.message);
+                    }
+                };
+                break;
+            case "diff":
+                if (args.length == 1) {
+                    command = repo -> repo.diffWorkingTree(null, System.out);
+                } else if (args.length == 2 && args[1].equals("--cached")) {
+                    command = repo -> repo.diffCached(System.out);
+                } else if (args.length == 2) {
+                    command = repo -> repo.diffWorkingTree(args[1], System.out);
+                } else if (args.length == 3) {
+                    command = repo -> repo.diffCommits(args[1], args[2], System.out);
+                } else {
+                    throw incorrectOperands();
+                }
+                break;
+            case "is-ancestor":
+                validateNumArgs(args, 3);
+                command = repo -> System.out.println(repo.isAncestor(args[1], args[2]));
+                break;
+            case "rev-count":
+                validateNumArgs(args, 3);
+                command = repo -> System.out.println(repo.revCount(args[1], args[2]));
+                break;
+            case "fsck":
+                validateNumArgs(args, 1);
+                command = repo -> {
+                    Fsck.Report report = repo.fsck();
+                    report.problems.forEach(System.out::println);
+                    System.out.println(report);
+                    if (report.errors() > 0) {
+                        exitStatus = 1;
+                    }
+                };
+                break;
+            case "gc":
+                long grace = -1;
+                if (args.length == 3 && args[1].equals("--grace")) {
+                    try {
+                        grace = Long.parseLong(args[2]);
+                    } catch (NumberFormatException e) {
+                        throw new GitletException("Invalid grace period: " + args[2]);
+                    }
+                } else if (args.length != 1) {
+                    throw incorrectOperands();
+                }
+                long graceSeconds = grace;
+                command = repo -> System.out.println(repo.gc(graceSeconds));
+                break;
+            case "config":
+                if (args.length == 3 && args[1].equals("--unset")) {
+                    command = repo -> repo.unsetConfig(args[2]);
+                } else if (args.length == 1) {
+                    command = repo -> repo.config().forEach((key, value) -> System.out.println(key + "=" + value));
+                } else if (args.length == 2) {
+                    command = repo -> {
+                        String value = repo.config(args[1]);
+                        if (value != null) {
+                            System.out.println(value);
+                        }
+                    };
+                } else if (args.length == 3) {
+                    command = repo -> repo.config(args[1], args[2]);
+                } else {
+                    throw incorrectOperands();
+                }
+                break;
+            case "sparse-checkout":
+                if (args.length >= 3 && args[1].equals("set")) {
+                    command = repo -> repo.setSparseCheckout(Arrays.asList(args).subList(2, args.length));
+                } else if (args.length == 2 && args[1].equals("list")) {
+                    command = repo -> repo.sparseCheckout().forEach(System.out::println);
+                } else if (args.length == 2 && args[1].equals("disable")) {
+                    command = repo -> repo.setSparseCheckout(Collections.emptyList());
+                } else {
+                    throw incorrectOperands();
+                }
                 break;
             default:
-                System.out.println("No command with that name exists.");
-                System.exit(0);
+                throw new GitletException("No command with that name exists.");
+        }
+        return command;
+    }
+
+    /**
+     * 处理命令名之前的全局选项 返回从命令名开始的参数
+     * 遇到第一个不是全局选项的参数后停止 之后的参数（即使是--stats等）都作为命令的参数
+     *  --stats       打印checkout写入文件的吞吐量
+     *  --trace       退出时在标准错误打印各命令和底层I/O操作的次数、字节数和耗时分布
+     *  --trace=json  同上 以JSON格式打印
+     */
+    private static String[] parseGlobalOptions(String[] args) {
+        int i = 0;
+        for (; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stats")) {
+                showStats = true;
+            } else if (arg.equals("--trace") || arg.equals("--trace=json")) {
+                Trace.enable(arg.equals("--trace=json"));
+            } else {
+                break;
+            }
+        }
+        return Arrays.copyOfRange(args, i, args.length);
+    }
+
+    /**
+     * 参数数量或格式错误  单独运行时为RuntimeException（与原来相同）；
+     * batch中为GitletException 打印错误信息后继续执行下一行
+     */
+    private static RuntimeException incorrectOperands() {
+        if (inBatch) {
+            return new GitletException("Incorrect operands.");
         }
+        return new RuntimeException("Incorrect operands.");
     }
 
     /**
      * Checks the number of arguments versus the expected number,
-     * throws a RuntimeException if they do not match.
+     * throws a RuntimeException (a GitletException in batch) if they do not match.
      *
      * param   cmd Name of command you are validating
      * @param args Argument array from command line
@@ -99,7 +445,7 @@ public class Main {
      */
     private static void validateNumArgs(String[] args, int n) {
         if (args.length != n) {
-            throw new RuntimeException("Incorrect operands.");
+            throw incorrectOperands();
         }
     }
 }
@@ -0,0 +1,184 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 文件级的三路合并
+ *
+ * 拆分点(base)、当前分支(ours)、给定分支(theirs)三个版本的 文件名--blob ID 映射中，
+ * 只有theirs与base不同的文件才可能需要处理。先按文件名顺序同时遍历base和theirs找出这些文件
+ * （两个映射都是commit中的PathTable时直接比较二进制的blob ID），再只对它们查出ours的版本：
+ *  ours == theirs                 两边结果相同 保持不变
+ *  base == ours  且 theirs != base 只有给定分支修改过 取theirs的版本（theirs中不存在则删除）
+ *  base == theirs                  只有当前分支修改过 保持不变
+ *  其余情况                         两边以不同方式修改 冲突
+ * 只返回需要处理的文件（TAKE_THEIRS、DELETE、CONFLICT） 按文件名排序。
+ * 不复制、不重新排序三个映射 时间与文件数成线性 分支只修改了少量文件时主要是一次顺序遍历。
+ *
+ * 给出重命名信息时 先把重命名后的文件对齐到拆分点中的原文件名再分类：
+ *  给定分支把A重命名为B 而当前分支仍有A（可能修改过）：合并A的三个版本 结果放到B 并删除A
+ *  当前分支把A重命名为B 而给定分支修改了A：合并A的三个版本 结果放到B
+ * 这类文件即使不需要合并内容也会返回（KEEP_OURS） 由调用者完成移动。
+ */
+class MergeEngine {
+
+    enum Action {
+        /** 检出给定分支中的版本并暂存 */
+        TAKE_THEIRS,
+        /** 给定分支删除了该文件 当前分支未修改 */
+        DELETE,
+        /** 两个分支以不同方式修改了该文件 */
+        CONFLICT,
+        /** 保留当前分支的内容（只用于重命名的文件 内容可能需要移动到新文件名） */
+        KEEP_OURS
+    }
+
+    /**
+     * 一个文件的合并结果  base/ours/theirs为各版本的blob ID 不存在时为null
+     * path为合并结果的文件名  oursPath为当前分支中该文件的文件名（给定分支重命名了该文件时与path不同）
+     */
+    static class Change {
+        final String path;
+        final String oursPath;
+        final Action action;
+        final String base;
+        final String ours;
+        final String theirs;
+
+        Change(String path, String oursPath, Action action, String base, String ours, String theirs) {
+            this.path = path;
+            this.oursPath = oursPath;
+            this.action = action;
+            this.base = base;
+            this.ours = ours;
+            this.theirs = theirs;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + path;
+        }
+    }
+
+    /** 对三个 文件名--blob ID 映射做三路合并 */
+    static List<Change> classify(Map<String, String> base, Map<String, String> ours,
+                                 Map<String, String> theirs) {
+        return classify(base, ours, theirs, Collections.<String>emptySet());
+    }
+
+    /**
+     * 同上 OURSRENAMES/THEIRSRENAMES为两个分支相对于拆分点的重命名
+     * 两个分支都重命名了同一个文件时不做处理（按普通的删除/新增合并）
+     */
+    static List<Change> classify(Map<String, String> base, Map<String, String> ours,
+                                 Map<String, String> theirs, List<RenameDetector.Rename> oursRenames,
+                                 List<RenameDetector.Rename> theirsRenames) {
+        HashSet<String> renamedInOurs = new HashSet<>();
+        for (RenameDetector.Rename rename : oursRenames) {
+            renamedInOurs.add(rename.from);
+        }
+        //对齐只修改重命名的文件：在原映射上用PathTable.Builder记录修改 不复制整个映射
+        PathTable.Builder alignedOurs = null;
+        PathTable.Builder alignedTheirs = null;
+        //拆分点中的文件名 -- {合并结果的文件名, 当前分支中的文件名}
+        HashMap<String, String[]> moved = new HashMap<>();
+        for (RenameDetector.Rename rename : theirsRenames) {
+            if (!renamedInOurs.remove(rename.from) && ours.containsKey(rename.from)
+                    && !ours.containsKey(rename.to)) {
+                if (alignedTheirs == null) {
+                    alignedTheirs = PathTable.of(theirs).toBuilder();
+                }
+                alignedTheirs.remove(rename.to).put(rename.from, theirs.get(rename.to));
+                moved.put(rename.from, new String[]{rename.to, rename.from});
+            }
+        }
+        for (RenameDetector.Rename rename : oursRenames) {
+            if (renamedInOurs.contains(rename.from) && theirs.containsKey(rename.from)
+                    && !theirs.containsKey(rename.to)) {
+                if (alignedOurs == null) {
+                    alignedOurs = PathTable.of(ours).toBuilder();
+                }
+                alignedOurs.remove(rename.to).put(rename.from, ours.get(rename.to));
+                moved.put(rename.from, new String[]{rename.to, rename.to});
+            }
+        }
+        if (moved.isEmpty()) {
+            return classify(base, ours, theirs);
+        }
+        List<Change> result = new ArrayList<>();
+        for (Change change : classify(base, alignedOurs == null ? ours : alignedOurs.build(),
+                alignedTheirs == null ? theirs : alignedTheirs.build(), moved.keySet())) {
+            String[] target = moved.get(change.path);
+            if (target == null) {
+                result.add(change);
+            } else {
+                result.add(new Change(target[0], target[1], change.action == null ? Action.KEEP_OURS : change.action,
+                        change.base, change.ours, change.theirs));
+            }
+        }
+        result.sort(Comparator.comparing(change -> change.path));
+        return result;
+    }
+
+    /** KEEP中的文件即使不需要处理也会返回（action为null） */
+    private static List<Change> classify(Map<String, String> base, Map<String, String> ours,
+                                         Map<String, String> theirs, Set<String> keep) {
+        List<String> paths = changedPaths(base, theirs);
+        if (!keep.isEmpty()) {
+            TreeSet<String> all = new TreeSet<>(paths);
+            all.addAll(keep);
+            paths = new ArrayList<>(all);
+        }
+        List<Change> result = new ArrayList<>();
+        for (String path : paths) {
+            String baseID = base.get(path);
+            String oursID = ours.get(path);
+            String theirsID = theirs.get(path);
+            Action action = classify(baseID, oursID, theirsID);
+            if (action != null || keep.contains(path)) {
+                result.add(new Change(path, path, action, baseID, oursID, theirsID));
+            }
+        }
+        return result;
+    }
+
+    /** 单个文件的合并结果  不需要处理时返回null */
+    static Action classify(String base, String ours, String theirs) {
+        if (Objects.equals(ours, theirs) || Objects.equals(base, theirs)) {
+            return null;
+        }
+        if (Objects.equals(base, ours)) {
+            return theirs == null ? Action.DELETE : Action.TAKE_THEIRS;
+        }
+        return Action.CONFLICT;
+    }
+
+    /** A与B中blob ID不同的文件名（包括只在其中一个中存在的） 按文件名排序 */
+    private static List<String> changedPaths(Map<String, String> a, Map<String, String> b) {
+        if (a instanceof PathTable && b instanceof PathTable) {
+            return ((PathTable) a).changedPaths((PathTable) b);
+        }
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, String> entry : b.entrySet()) {
+            if (!entry.getValue().equals(a.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String path : a.keySet()) {
+            if (!b.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        Collections.sort(changed);
+        return changed;
+    }
+}
@@ -0,0 +1,144 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * clone时把一个仓库的对象库（objects目录）放到另一个仓库中
+ *
+ * blob、commit、清单和内容块都以内容（或ID）为文件名 写入后不会再被修改，
+ * 因此直接用硬链接共享同一份数据：不论历史有多长 都只需要创建目录项，不读写文件内容。
+ * 之后任一仓库gc删除的只是自己的链接，另一个仓库中的对象不受影响。
+ * 不支持硬链接时（例如两个仓库在不同的文件系统上）退回到复制，保留原来的修改时间。
+ *
+ * 例外是link模式检出的工作目录文件：它们与blob是同一个inode（见CheckoutWriter），再链接到新仓库后，
+ * 在原地修改工作目录中的文件会同时改动新仓库的历史。因此源仓库用过link模式时（COPYLINKEDBLOBS），
+ * 链接数大于1的blob复制而不链接；另一方面link模式检出也不链接链接数大于1的blob，两边都不会共享这样的inode。
+ *
+ * 每个目录（例如blobs/ab）作为共享线程池（Workers）中的一个任务 并行处理。
+ */
+class ObjectCloner {
+
+    private final File sourceDir;
+    private final File targetDir;
+    /** 链接数大于1的blob是否复制 */
+    private final boolean copyLinkedBlobs;
+    /** 第一次创建硬链接失败后 其余文件直接复制 */
+    private volatile boolean linkSupported = true;
+
+    ObjectCloner(File sourceDir, File targetDir, boolean copyLinkedBlobs) {
+        this.sourceDir = sourceDir;
+        this.targetDir = targetDir;
+        this.copyLinkedBlobs = copyLinkedBlobs;
+    }
+
+    /** 创建TARGETDIR中的目录 并行链接（或复制）全部文件 */
+    Stats run() {
+        long start = System.nanoTime();
+        List<File[]> dirs = new ArrayList<>();
+        collectDirs(sourceDir, targetDir, dirs);
+        List<Future<long[]>> results = new ArrayList<>(dirs.size());
+        Stats stats = new Stats();
+        try {
+            for (File[] dir : dirs) {
+                results.add(Workers.submit(() -> cloneFiles(dir[0], dir[1])));
+            }
+            for (Future<long[]> result : results) {
+                long[] counts = result.get();
+                stats.linked += counts[0];
+                stats.copied += counts[1];
+                stats.bytes += counts[2];
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException(String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitletException("Interrupted.");
+        } finally {
+            for (Future<long[]> result : results) {
+                result.cancel(true);
+            }
+        }
+        stats.nanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /** 在TO中创建FROM下的所有目录 并记录每一对目录 */
+    private static void collectDirs(File from, File to, List<File[]> dirs) {
+        if (!to.isDirectory() && !to.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create directory " + to);
+        }
+        dirs.add(new File[]{from, to});
+        File[] children = from.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                collectDirs(child, new File(to, child.getName()), dirs);
+            }
+        }
+    }
+
+    /** 链接（或复制）FROM中的文件到TO  返回 {链接数, 复制数, 复制的字节数} */
+    private long[] cloneFiles(File from, File to) {
+        long[] counts = new long[3];
+        File[] files = from.listFiles(File::isFile);
+        if (files == null) {
+            return counts;
+        }
+        boolean blobs = copyLinkedBlobs && new File(sourceDir, "blobs").equals(from.getParentFile());
+        for (File file : files) {
+            File target = new File(to, file.getName());
+            if (linkSupported && !(blobs && CheckoutWriter.linkCount(file) != 1)) {
+                try {
+                    Files.createLink(target.toPath(), file.toPath());
+                    counts[0]++;
+                    continue;
+                } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                    linkSupported = false;
+                }
+            }
+            try {
+                Files.copy(file.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            counts[1]++;
+            counts[2] += file.length();
+        }
+        return counts;
+    }
+
+    /** 删除FILE（目录时连同其中的全部内容）  clone失败时清理已经创建的文件 */
+    static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** 一次clone的统计信息 */
+    static class Stats {
+        long linked;
+        long copied;
+        long bytes;
+        long nanos;
+
+        @Override
+        public String toString() {
+            return String.format("Cloned %d objects (%d linked, %d copied, %.1f MB) in %.1f ms",
+                    linked + copied, linked, copied, bytes / (1024.0 * 1024.0), nanos / 1e6);
+        }
+    }
+}
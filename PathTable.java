@@ -0,0 +1,484 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * commit中 文件名 -- blob ID 的不可变映射  按文件名（String.compareTo）排序 紧凑地保存在几个数组中
+ *
+ * HashMap的每个条目需要一个节点、文件名String和40个字符的blob ID String（合计约200字节），
+ * 大仓库的每个commit都有成千上万个条目。这里：
+ *   文件名按顺序每BLOCK个分为一块 块首的文件名完整保存在heads中，其余的只保存与前一个文件名不同的后缀
+ *   （front coding：varint 共享前缀的字符数 + varint 后缀的字节数 + UTF-8后缀），排序后相邻的路径通常有很长的公共前缀；
+ *   blob ID以20字节的二进制连续保存在ids中。
+ * 查找时在heads中二分查找 再在块内顺序解码至多BLOCK-1个文件名；遍历时按顺序逐个解码。
+ * 占用的内存只有HashMap的几分之一 CommitCache中因此可以放下更多的commit。
+ *
+ * 修改通过Builder进行：只记录对原表的put/remove 不复制原表（没有修改时build直接返回原表），
+ * build时把原表和修改按顺序归并 一次生成新表。
+ * 序列化时由Commit转换为HashMap 因此commit文件的格式不变。
+ */
+final class PathTable extends AbstractMap<String, String> {
+
+    static final PathTable EMPTY = new Encoder().finish();
+
+    private static final int BLOCK = 16;
+    private static final int ID_BYTES = Utils.UID_LENGTH / 2;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int size;
+    /** 每块第一个文件名 */
+    private final String[] heads;
+    /** 每块第二个文件名在data中的位置 */
+    private final int[] offsets;
+    /** 除块首以外的文件名 */
+    private final byte[] data;
+    /** 每个条目20字节的blob ID */
+    private final byte[] ids;
+    /** 有不是40位十六进制的值时改为直接保存所有的值 此时ids为null */
+    private final String[] rawValues;
+
+    private PathTable(int size, String[] heads, int[] offsets, byte[] data, byte[] ids, String[] rawValues) {
+        this.size = size;
+        this.heads = heads;
+        this.offsets = offsets;
+        this.data = data;
+        this.ids = ids;
+        this.rawValues = rawValues;
+    }
+
+    /** 与MAP内容相同的表  MAP本身就是PathTable时直接返回 */
+    static PathTable of(Map<String, String> map) {
+        if (map instanceof PathTable) {
+            return (PathTable) map;
+        }
+        String[] keys = map.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        Encoder encoder = new Encoder();
+        for (String key : keys) {
+            encoder.add(key, map.get(key));
+        }
+        return encoder.finish();
+    }
+
+    /** 在本表基础上修改的Builder */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int i = indexOf((String) key);
+        return i < 0 ? null : valueAt(i);
+    }
+
+    /** 按文件名顺序的条目 */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                Cursor cursor = new Cursor();
+                return new Iterator<Entry<String, String>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return cursor.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        String key = cursor.next();
+                        return new SimpleImmutableEntry<>(key, valueAt(cursor.index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /** 转换为HashMap（序列化时使用） */
+    HashMap<String, String> toHashMap() {
+        HashMap<String, String> map = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (Entry<String, String> entry : entrySet()) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    /** 本表与OTHER中blob ID不同（包括只在其中一个表中）的文件名  两个表按顺序归并 不做查找 */
+    List<String> changedPaths(PathTable other) {
+        List<String> changed = new ArrayList<>();
+        Cursor a = new Cursor();
+        Cursor b = other.new Cursor();
+        String x = a.hasNext() ? a.next() : null;
+        String y = b.hasNext() ? b.next() : null;
+        while (x != null || y != null) {
+            int cmp = x == null ? 1 : y == null ? -1 : x.compareTo(y);
+            if (cmp < 0) {
+                changed.add(x);
+            } else if (cmp > 0) {
+                changed.add(y);
+            } else if (!sameValue(a.index, other, b.index)) {
+                changed.add(x);
+            }
+            if (cmp <= 0) {
+                x = a.hasNext() ? a.next() : null;
+            }
+            if (cmp >= 0) {
+                y = b.hasNext() ? b.next() : null;
+            }
+        }
+        return changed;
+    }
+
+    private boolean sameValue(int i, PathTable other, int j) {
+        if (ids == null || other.ids == null) {
+            return valueAt(i).equals(other.valueAt(j));
+        }
+        for (int k = 0; k < ID_BYTES; k++) {
+            if (ids[i * ID_BYTES + k] != other.ids[j * ID_BYTES + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String valueAt(int i) {
+        return rawValues != null ? rawValues[i] : toHex(ids, i * ID_BYTES);
+    }
+
+    /** PATH的下标 不存在时返回-1 */
+    private int indexOf(String path) {
+        int lo = 0;
+        int hi = heads.length - 1;
+        int block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = heads[mid].compareTo(path);
+            if (cmp == 0) {
+                return mid * BLOCK;
+            } else if (cmp < 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+        //块内顺序查找 不还原文件名：MATCHED为前一个文件名（比PATH小）与PATH的公共前缀长度，
+        //共享前缀更长的文件名在同一位置上与前一个相同 也比PATH小 不需要比较；其余的只比较后缀
+        String head = heads[block];
+        int matched = 0;
+        while (matched < head.length() && head.charAt(matched) == path.charAt(matched)) {
+            matched++;
+        }
+        int pos = offsets[block];
+        int end = Math.min(size, (block + 1) * BLOCK);
+        for (int i = block * BLOCK + 1; i < end; i++) {
+            int prefix = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                prefix |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                length |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int start = pos;
+            pos += length;
+            if (prefix > matched) {
+                continue;
+            }
+            String decoded = null;
+            for (int j = start; j < pos; j++) {
+                if (data[j] < 0) {
+                    decoded = new String(data, start, length, StandardCharsets.UTF_8);
+                    break;
+                }
+            }
+            int n = decoded != null ? decoded.length() : length;
+            int k = 0;
+            int t = prefix;
+            while (k < n && t < path.length()) {
+                char c = decoded != null ? decoded.charAt(k) : (char) data[start + k];
+                char d = path.charAt(t);
+                if (c != d) {
+                    if (c > d) {
+                        return -1;
+                    }
+                    break;
+                }
+                k++;
+                t++;
+            }
+            if (k == n && t == path.length()) {
+                return i;
+            } else if (k < n && t == path.length()) {
+                //PATH是这个文件名的前缀 之后的文件名都比PATH大
+                return -1;
+            }
+            matched = t;
+        }
+        return -1;
+    }
+
+    /** 从data的POS处解码下一个文件名：CURRENT中原为前一个文件名 之后为这一个  返回再下一个文件名的位置 */
+    private int decode(int pos, StringBuilder current) {
+        int prefix = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos++];
+            prefix |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos++];
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        current.setLength(prefix);
+        int end = pos + length;
+        //ASCII直接追加 其余部分按UTF-8解码
+        while (pos < end && data[pos] >= 0) {
+            current.append((char) data[pos++]);
+        }
+        if (pos < end) {
+            current.append(new String(data, pos, end - pos, StandardCharsets.UTF_8));
+        }
+        return end;
+    }
+
+    private static String toHex(byte[] bytes, int offset) {
+        char[] hex = new char[ID_BYTES * 2];
+        for (int k = 0; k < ID_BYTES; k++) {
+            int b = bytes[offset + k] & 0xff;
+            hex[2 * k] = HEX_DIGITS[b >>> 4];
+            hex[2 * k + 1] = HEX_DIGITS[b & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /** ID是否为40位小写十六进制（可以无损地保存为20字节） */
+    private static boolean isPackable(String ID) {
+        if (ID == null || ID.length() != ID_BYTES * 2) {
+            return false;
+        }
+        for (int i = 0; i < ID.length(); i++) {
+            char c = ID.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 按顺序逐个解码文件名 */
+    private class Cursor {
+        /** 当前条目的下标 */
+        int index = -1;
+        private int pos;
+        private final StringBuilder current = new StringBuilder();
+
+        boolean hasNext() {
+            return index + 1 < size;
+        }
+
+        String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            index++;
+            if (index % BLOCK == 0) {
+                String head = heads[index / BLOCK];
+                current.setLength(0);
+                current.append(head);
+                pos = offsets[index / BLOCK];
+                return head;
+            }
+            pos = decode(pos, current);
+            return current.toString();
+        }
+    }
+
+    /** 按文件名顺序逐个添加条目 生成PathTable */
+    private static class Encoder {
+        private final ArrayList<String> heads = new ArrayList<>();
+        private int[] offsets = new int[8];
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        private ArrayList<String> rawValues;
+        private String previous;
+        private int size;
+
+        void add(String path, String blobID) {
+            addPath(path);
+            if (rawValues == null && isPackable(blobID)) {
+                for (int k = 0; k < ID_BYTES; k++) {
+                    ids.write(Integer.parseInt(blobID.substring(2 * k, 2 * k + 2), 16));
+                }
+            } else {
+                addRaw(blobID);
+            }
+            size++;
+        }
+
+        /** 添加FROM中的第I个条目 直接复制二进制ID */
+        void add(String path, PathTable from, int i) {
+            if (rawValues != null || from.rawValues != null) {
+                add(path, from.valueAt(i));
+                return;
+            }
+            addPath(path);
+            ids.write(from.ids, i * ID_BYTES, ID_BYTES);
+            size++;
+        }
+
+        private void addPath(String path) {
+            if (size % BLOCK == 0) {
+                if (heads.size() == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[heads.size()] = data.size();
+                heads.add(path);
+            } else {
+                int prefix = commonPrefix(previous, path);
+                byte[] suffix = path.substring(prefix).getBytes(StandardCharsets.UTF_8);
+                writeVarint(prefix);
+                writeVarint(suffix.length);
+                data.write(suffix, 0, suffix.length);
+            }
+            previous = path;
+        }
+
+        /** 出现第一个不能压缩的值时 把已有的ID全部转换为字符串 */
+        private void addRaw(String blobID) {
+            if (rawValues == null) {
+                rawValues = new ArrayList<>();
+                byte[] packed = ids.toByteArray();
+                for (int i = 0; i < size; i++) {
+                    rawValues.add(toHex(packed, i * ID_BYTES));
+                }
+            }
+            rawValues.add(blobID);
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                data.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data.write(value);
+        }
+
+        /** 公共前缀的字符数  不在代理对中间断开 */
+        private static int commonPrefix(String a, String b) {
+            int n = Math.min(a.length(), b.length());
+            int k = 0;
+            while (k < n && a.charAt(k) == b.charAt(k)) {
+                k++;
+            }
+            if (k > 0 && Character.isHighSurrogate(a.charAt(k - 1))) {
+                k--;
+            }
+            return k;
+        }
+
+        PathTable finish() {
+            return new PathTable(size, heads.toArray(new String[0]), Arrays.copyOf(offsets, heads.size()),
+                    data.toByteArray(), rawValues == null ? ids.toByteArray() : null,
+                    rawValues == null ? null : rawValues.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 写时复制的Builder：记录对原表的修改 build时与原表归并为新表
+     */
+    static final class Builder {
+        private final PathTable base;
+        /** 文件名 -- 新的blob ID  值为null表示删除 */
+        private final TreeMap<String, String> changes = new TreeMap<>();
+
+        private Builder(PathTable base) {
+            this.base = base;
+        }
+
+        Builder put(String path, String blobID) {
+            changes.put(path, Objects.requireNonNull(blobID));
+            return this;
+        }
+
+        Builder remove(String path) {
+            changes.put(path, null);
+            return this;
+        }
+
+        PathTable build() {
+            if (changes.isEmpty()) {
+                return base;
+            }
+            Encoder encoder = new Encoder();
+            Cursor old = base.new Cursor();
+            Iterator<Entry<String, String>> updates = changes.entrySet().iterator();
+            String oldPath = old.hasNext() ? old.next() : null;
+            Entry<String, String> update = updates.hasNext() ? updates.next() : null;
+            while (oldPath != null || update != null) {
+                int cmp = oldPath == null ? 1 : update == null ? -1 : oldPath.compareTo(update.getKey());
+                if (cmp < 0) {
+                    encoder.add(oldPath, base, old.index);
+                    oldPath = old.hasNext() ? old.next() : null;
+                } else {
+                    if (update.getValue() != null) {
+                        encoder.add(update.getKey(), update.getValue());
+                    }
+                    if (cmp == 0) {
+                        oldPath = old.hasNext() ? old.next() : null;
+                    }
+                    update = updates.hasNext() ? updates.next() : null;
+                }
+            }
+            return encoder.finish();
+        }
+    }
+}
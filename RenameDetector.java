@@ -0,0 +1,267 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 重命名/复制检测
+ *
+ * commit中只有 文件名--blob ID 的映射  移动后的文件表现为一次删除加一次新增。
+ * 对删除的文件和新增的文件：
+ *  1. 先按blob ID做hash join 内容完全相同的直接配对（相似度100%）
+ *  2. 剩下的文件读取内容 用文件中各行的哈希集合计算MinHash签名（SKETCH_SIZE个最小哈希值），
+ *     再把签名分成BANDS段（LSH） 至少有一段完全相同的两个文件才作为候选，
+ *     候选对用签名估计Jaccard相似度 不低于阈值的按相似度从高到低贪心配对（每个文件最多配对一次）
+ * 不需要对所有删除/新增文件两两比较 整体为O(n log n)。
+ */
+class RenameDetector {
+
+    /** 默认的相似度阈值（百分比） */
+    static final int DEFAULT_THRESHOLD = 50;
+
+    private static final int SKETCH_SIZE = 64;
+    private static final int BANDS = 32;
+    private static final int ROWS = SKETCH_SIZE / BANDS;
+    private static final long[] SEEDS = new long[SKETCH_SIZE];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SKETCH_SIZE; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    /** 一对重命名（或复制）的文件 */
+    static class Rename {
+        final String from;
+        final String to;
+        /** 相似度 0-100 */
+        final int score;
+        final boolean copy;
+
+        Rename(String from, String to, int score, boolean copy) {
+            this.from = from;
+            this.to = to;
+            this.score = score;
+            this.copy = copy;
+        }
+
+        @Override
+        public String toString() {
+            return (copy ? "copy " : "rename ") + from + " => " + to + " (" + score + "%)";
+        }
+    }
+
+    private RenameDetector() {
+    }
+
+    /**
+     * 在DELETED（旧文件名--blob ID）与ADDED（新文件名--blob ID）之间检测重命名
+     * OLDLOADER/NEWLOADER根据 (文件名, blob ID) 分别返回旧/新文件的内容  THRESHOLD为相似度阈值（百分比）
+     * 返回的结果按新文件名排序
+     */
+    static List<Rename> detectRenames(Map<String, String> deleted, Map<String, String> added,
+                                      Function<String[], byte[]> oldLoader, Function<String[], byte[]> newLoader,
+                                      int threshold) {
+        return detect(deleted, added, oldLoader, newLoader, threshold, false);
+    }
+
+    /**
+     * 在新增的文件ADDED中检测从SOURCES复制而来的文件
+     * 内容相同的复制在EXACTSOURCES（通常为旧版本中的所有文件）中查找 不需要读取内容，
+     * 内容相似的复制只在SOURCES（通常为被修改过的文件）中查找
+     */
+    static List<Rename> detectCopies(Map<String, String> exactSources, Map<String, String> sources,
+                                     Map<String, String> added, Function<String[], byte[]> oldLoader,
+                                     Function<String[], byte[]> newLoader, int threshold) {
+        List<Rename> result = new ArrayList<>();
+        HashMap<String, String> byID = new HashMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(exactSources).entrySet()) {
+            byID.putIfAbsent(entry.getValue(), entry.getKey());
+        }
+        TreeMap<String, String> remaining = new TreeMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(added).entrySet()) {
+            String source = byID.get(entry.getValue());
+            if (source != null) {
+                result.add(new Rename(source, entry.getKey(), 100, true));
+            } else {
+                remaining.put(entry.getKey(), entry.getValue());
+            }
+        }
+        result.addAll(detect(sources, remaining, oldLoader, newLoader, threshold, true));
+        result.sort(Comparator.comparing(r -> r.to));
+        return result;
+    }
+
+    private static List<Rename> detect(Map<String, String> from, Map<String, String> to,
+                                       Function<String[], byte[]> fromLoader, Function<String[], byte[]> toLoader,
+                                       int threshold, boolean copy) {
+        List<Rename> result = new ArrayList<>();
+        if (from.isEmpty() || to.isEmpty()) {
+            return result;
+        }
+        //1. 内容完全相同：按blob ID做hash join
+        HashMap<String, List<String>> fromByID = new HashMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(from).entrySet()) {
+            fromByID.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        TreeMap<String, String> restFrom = new TreeMap<>(from);
+        TreeMap<String, String> restTo = new TreeMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(to).entrySet()) {
+            List<String> sources = fromByID.get(entry.getValue());
+            if (sources != null && !sources.isEmpty()) {
+                String source = copy ? sources.get(0) : sources.remove(0);
+                restFrom.remove(source);
+                result.add(new Rename(source, entry.getKey(), 100, copy));
+            } else {
+                restTo.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (copy) {
+            restFrom = new TreeMap<>(from);
+        }
+
+        //2. 内容相似：MinHash签名 + LSH分段找候选
+        if (threshold <= 100 && !restFrom.isEmpty() && !restTo.isEmpty()) {
+            Map<String, Sketch> fromSketches = sketches(restFrom, fromLoader);
+            Map<String, Sketch> toSketches = sketches(restTo, toLoader);
+            HashMap<Long, List<String>> buckets = new HashMap<>();
+            for (Map.Entry<String, Sketch> entry : fromSketches.entrySet()) {
+                for (int band = 0; band < BANDS; band++) {
+                    buckets.computeIfAbsent(entry.getValue().band(band), k -> new ArrayList<>())
+                            .add(entry.getKey());
+                }
+            }
+            List<Rename> candidates = new ArrayList<>();
+            for (Map.Entry<String, Sketch> entry : toSketches.entrySet()) {
+                Set<String> seen = new HashSet<>();
+                for (int band = 0; band < BANDS; band++) {
+                    List<String> bucket = buckets.get(entry.getValue().band(band));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (String source : bucket) {
+                        if (seen.add(source)) {
+                            int score = fromSketches.get(source).similarity(entry.getValue());
+                            if (score >= threshold) {
+                                candidates.add(new Rename(source, entry.getKey(), score, copy));
+                            }
+                        }
+                    }
+                }
+            }
+            //相似度从高到低贪心配对
+            candidates.sort(Comparator.comparingInt((Rename r) -> -r.score)
+                    .thenComparing(r -> r.to).thenComparing(r -> r.from));
+            Set<String> usedFrom = new HashSet<>();
+            Set<String> usedTo = new HashSet<>();
+            for (Rename candidate : candidates) {
+                if (usedTo.contains(candidate.to) || (!copy && usedFrom.contains(candidate.from))) {
+                    continue;
+                }
+                usedTo.add(candidate.to);
+                usedFrom.add(candidate.from);
+                result.add(candidate);
+            }
+        }
+        result.sort(Comparator.comparing(r -> r.to));
+        return result;
+    }
+
+    /** 并行读取文件内容并计算签名  空文件没有签名 */
+    private static Map<String, Sketch> sketches(Map<String, String> files, Function<String[], byte[]> loader) {
+        Map<String, Sketch> result = new LinkedHashMap<>();
+        files.entrySet().parallelStream()
+                .map(entry -> new Object[]{entry.getKey(),
+                        Sketch.of(loader.apply(new String[]{entry.getKey(), entry.getValue()}))})
+                .forEachOrdered(pair -> {
+                    if (pair[1] != null) {
+                        result.put((String) pair[0], (Sketch) pair[1]);
+                    }
+                });
+        return result;
+    }
+
+    /** 文件内容的MinHash签名 */
+    private static class Sketch {
+        private final long[] mins;
+        private final int features;
+
+        private Sketch(long[] mins, int features) {
+            this.mins = mins;
+            this.features = features;
+        }
+
+        /** 以文件中每一行的哈希值作为特征 */
+        static Sketch of(byte[] content) {
+            HashSet<Long> lines = new HashSet<>();
+            long h = 0xcbf29ce484222325L;
+            boolean inLine = false;
+            for (byte b : content) {
+                h = (h ^ (b & 0xff)) * 0x100000001b3L;
+                inLine = true;
+                if (b == '\n') {
+                    lines.add(h);
+                    h = 0xcbf29ce484222325L;
+                    inLine = false;
+                }
+            }
+            if (inLine) {
+                lines.add(h);
+            }
+            if (lines.isEmpty()) {
+                return null;
+            }
+            long[] mins = new long[SKETCH_SIZE];
+            Arrays.fill(mins, Long.MAX_VALUE);
+            for (long line : lines) {
+                for (int i = 0; i < SKETCH_SIZE; i++) {
+                    long v = mix(line ^ SEEDS[i]);
+                    if (v < mins[i]) {
+                        mins[i] = v;
+                    }
+                }
+            }
+            return new Sketch(mins, lines.size());
+        }
+
+        /** 第BAND段签名的哈希值 */
+        long band(int band) {
+            long h = band;
+            for (int r = 0; r < ROWS; r++) {
+                h = mix(h ^ mins[band * ROWS + r]);
+            }
+            return h;
+        }
+
+        /** 估计的Jaccard相似度（百分比）  不超过两个特征集合大小之比 */
+        int similarity(Sketch other) {
+            int same = 0;
+            for (int i = 0; i < SKETCH_SIZE; i++) {
+                if (mins[i] == other.mins[i]) {
+                    same++;
+                }
+            }
+            int estimate = same * 100 / SKETCH_SIZE;
+            int bound = Math.min(features, other.features) * 100 / Math.max(features, other.features);
+            return Math.min(estimate, bound);
+        }
+    }
+
+    /** 64位哈希混合函数（splitmix64） */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static gitlet.Utils.*;
+
+/**
+ * 稀疏检出的路径模式  每行一个 保存在 .gitlet/sparse-checkout 中
+ *
+ * 文件不存在（或没有模式）时所有路径都在检出范围内。否则只有匹配某个模式的路径会被
+ * checkout、reset、merge写入working dir，被status、diff读取和报告；其余的文件仍然被跟踪，
+ * commit时保持原来的版本 只是不出现在working dir中。
+ *
+ * 模式的写法：
+ *   *.txt        *匹配文件名中除/以外的任意字符  ?匹配一个字符
+ *   docs/        以/结尾：docs目录下的所有路径
+ *   src/**       **可以跨越/
+ *   README.md    不含通配符：该文件（或以它为目录的所有路径）
+ * 模式匹配完整路径 或者路径开头的某一级目录。空行和以#开头的行被忽略。
+ */
+class SparseCheckout {
+
+    private final List<String> patterns;
+    private final List<Pattern> regexes = new ArrayList<>();
+
+    private SparseCheckout(List<String> patterns) {
+        this.patterns = patterns;
+        for (String pattern : patterns) {
+            regexes.add(toRegex(pattern));
+        }
+    }
+
+    /** 读取FILE中的模式 文件不存在时返回包含所有路径的配置 */
+    static SparseCheckout load(File file) {
+        if (!file.isFile()) {
+            return new SparseCheckout(Collections.emptyList());
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String line : readContentsAsString(file).split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                patterns.add(line);
+            }
+        }
+        return new SparseCheckout(patterns);
+    }
+
+    /** 由PATTERNS构成的配置  检查模式的写法 */
+    static SparseCheckout of(List<String> patterns) {
+        List<String> checked = new ArrayList<>();
+        for (String pattern : patterns) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#") || pattern.replace("/", "").isEmpty()) {
+                throw error("Invalid sparse-checkout pattern: %s", pattern);
+            }
+            checked.add(pattern);
+        }
+        return new SparseCheckout(checked);
+    }
+
+    /** 写入FILE  没有模式时删除FILE 即关闭稀疏检出 */
+    void save(File file) {
+        if (patterns.isEmpty()) {
+            file.delete();
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String pattern : patterns) {
+            sb.append(pattern).append('\n');
+        }
+        writeContents(file, sb.toString());
+    }
+
+    /** 是否设置了模式 */
+    boolean isEnabled() {
+        return !patterns.isEmpty();
+    }
+
+    List<String> patterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+
+    /** PATH是否在检出范围内 */
+    boolean includes(String path) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern regex : regexes) {
+            if (regex.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把PATTERN转换为正则表达式：匹配完整路径，或者（作为目录）匹配路径开头的若干级 后面跟着/...
+     * 以/结尾的模式只匹配目录
+     */
+    private static Pattern toRegex(String pattern) {
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        regex.append(directoryOnly ? "/.*" : "(/.*)?");
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package gitlet;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+
+import static gitlet.Utils.*;
+
+/**
+ * 工作目录文件的stat缓存  fileName -- (size, mtime, blob ID)
+ * 文件的大小和修改时间都没有变化时直接使用缓存的blob ID 不需要重新读取文件计算SHA-1
+ *
+ * mtime落在上一次保存缓存之前RACY_WINDOW内的条目不可信：文件可能在同一时刻被再次修改而mtime不变，
+ * 这类条目会重新计算哈希（与git处理"racily clean"条目的方式相同）。
+ */
+class StatCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 文件系统mtime精度的保守估计 */
+    private static final long RACY_WINDOW = 2000;
+
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final long size;
+        final long mtime;
+        final String blobID;
+
+        Entry(long size, long mtime, String blobID) {
+            this.size = size;
+            this.mtime = mtime;
+            this.blobID = blobID;
+        }
+    }
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    /** 上一次保存的时间 */
+    private long savedAt;
+
+    private transient File cacheFile;
+    private transient boolean dirty;
+
+    /** 从CACHEFILE读取缓存 不存在或无法读取时返回空缓存 */
+    static StatCache load(File cacheFile) {
+        StatCache cache = null;
+        if (cacheFile.exists()) {
+            try {
+                cache = readObject(cacheFile, StatCache.class);
+            } catch (IllegalArgumentException e) {
+                //缓存损坏时直接丢弃 重新计算即可
+                cache = null;
+            }
+        }
+        if (cache == null) {
+            cache = new StatCache();
+        }
+        cache.cacheFile = cacheFile;
+        return cache;
+    }
+
+    /**
+     * 返回工作目录中文件FILE（对应文件名FILENAME）内容的blob ID
+     * stat信息与缓存一致时直接返回缓存的ID 否则读取文件计算并更新缓存  文件不存在时返回null
+     */
+    String blobID(File file, String fileName) {
+        if (!file.isFile()) {
+            if (entries.remove(fileName) != null) {
+                dirty = true;
+            }
+            return null;
+        }
+        long size = file.length();
+        long mtime = file.lastModified();
+        Entry entry = entries.get(fileName);
+        if (entry != null && entry.size == size && entry.mtime == mtime
+                && mtime < savedAt - RACY_WINDOW) {
+            return entry.blobID;
+        }
+        String ID = ChunkStore.sha1(file);
+        entries.put(fileName, new Entry(size, mtime, ID));
+        dirty = true;
+        return ID;
+    }
+
+    /** 文件FILE刚被写入为BLOBID对应的内容后调用 */
+    void update(String fileName, File file, String blobID) {
+        entries.put(fileName, new Entry(file.length(), file.lastModified(), blobID));
+        dirty = true;
+    }
+
+    void remove(String fileName) {
+        if (entries.remove(fileName) != null) {
+            dirty = true;
+        }
+    }
+
+    /** 有变化时写回缓存文件 */
+    void save() {
+        if (!dirty) {
+            return;
+        }
+        savedAt = System.currentTimeMillis();
+        writeObject(cacheFile, this);
+        dirty = false;
+    }
+}
@@ -0,0 +1,223 @@
+package gitlet;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 命令和底层I/O操作的计数、字节数和耗时分布  由全局选项 --trace 开启
+ *
+ * Utils中的读写、序列化、SHA-1和目录列举以及Main分发的每个命令都通过
+ *     long start = Trace.start();
+ *     ...
+ *     Trace.record(Trace.Op.XXX, start, bytes);
+ * 记录一次操作。没有开启时start只读取一个静态boolean 不调用System.nanoTime 开销可以忽略。
+ *
+ * 耗时用对数分桶的直方图记录（与HdrHistogram相同的思路）：按数值最高位所在的2的幂分组，
+ * 每组再按接下来的SUB_BITS位等分 相对误差不超过 1/2^SUB_BITS，记录一次只需要一次原子加法。
+ * 进程退出时（包括System.exit）把结果打印到标准错误 --trace=json 时打印为JSON。
+ */
+class Trace {
+
+    /** 被记录的底层操作 */
+    enum Op {
+        READ_CONTENTS("readContents"),
+        WRITE_CONTENTS("writeContents"),
+        READ_OBJECT("readObject"),
+        WRITE_OBJECT("writeObject"),
+        SHA1("sha1"),
+        LIST_FILES("plainFilenamesIn");
+
+        final String label;
+
+        Op(String label) {
+            this.label = label;
+        }
+    }
+
+    private static boolean enabled = false;
+    private static boolean json = false;
+    private static final Metric[] OPS = new Metric[Op.values().length];
+    private static final Map<String, Metric> COMMANDS = new ConcurrentHashMap<>();
+    private static String command;
+    private static long commandStart;
+
+    static {
+        for (int i = 0; i < OPS.length; i++) {
+            OPS[i] = new Metric();
+        }
+    }
+
+    private Trace() {
+    }
+
+    /** 开启记录 进程退出时打印结果  JSON为true时以JSON格式打印 */
+    static synchronized void enable(boolean asJson) {
+        json = asJson;
+        if (!enabled) {
+            enabled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                endCommand();
+                print(System.err);
+            }));
+        }
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 一次操作的开始时间  没有开启时返回0 */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** 记录一次从START开始的操作OP  BYTES为读写或哈希的字节数 */
+    static void record(Op op, long start, long bytes) {
+        if (enabled) {
+            OPS[op.ordinal()].record(System.nanoTime() - start, bytes);
+        }
+    }
+
+    /** 命令NAME开始执行 */
+    static synchronized void beginCommand(String name) {
+        if (enabled) {
+            command = name;
+            commandStart = System.nanoTime();
+        }
+    }
+
+    /** 当前命令执行结束（命令中途调用System.exit时由退出时的hook调用） */
+    static synchronized void endCommand() {
+        if (enabled && command != null) {
+            COMMANDS.computeIfAbsent(command, k -> new Metric()).record(System.nanoTime() - commandStart, 0);
+            command = null;
+        }
+    }
+
+    static synchronized void print(PrintStream out) {
+        if (json) {
+            out.println(toJson());
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "%-24s %8s %12s %12s %10s %10s %10s %10s",
+                "operation", "count", "bytes", "total ms", "p50 us", "p90 us", "p99 us", "max us"));
+        for (Map.Entry<String, Metric> entry : new TreeMap<>(COMMANDS).entrySet()) {
+            out.println(entry.getValue().row("command " + entry.getKey()));
+        }
+        for (Op op : Op.values()) {
+            if (OPS[op.ordinal()].count.sum() > 0) {
+                out.println(OPS[op.ordinal()].row(op.label));
+            }
+        }
+    }
+
+    /** 所有记录的JSON表示  耗时单位为纳秒 */
+    static synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{\"commands\":{");
+        String sep = "";
+        for (Map.Entry<String, Metric> entry : new TreeMap<>(COMMANDS).entrySet()) {
+            sb.append(sep).append('"').append(escape(entry.getKey())).append("\":").append(entry.getValue().toJson());
+            sep = ",";
+        }
+        sb.append("},\"operations\":{");
+        sep = "";
+        for (Op op : Op.values()) {
+            sb.append(sep).append('"').append(op.label).append("\":").append(OPS[op.ordinal()].toJson());
+            sep = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 一种操作的计数、字节数和耗时直方图 */
+    private static class Metric {
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+
+        final LongAdder count = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+
+        void record(long nanos, long size) {
+            nanos = Math.max(0, nanos);
+            count.increment();
+            bytes.add(size);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(bucket(nanos));
+        }
+
+        /** 数值V所在的桶 */
+        static int bucket(long v) {
+            if (v < SUB) {
+                return (int) v;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (magnitude - SUB_BITS)) & (SUB - 1);
+            return ((magnitude - SUB_BITS + 1) << SUB_BITS) | sub;
+        }
+
+        /** 桶INDEX中的最大值 */
+        static long upperBound(int index) {
+            if (index < SUB) {
+                return index;
+            }
+            int magnitude = (index >>> SUB_BITS) - 1 + SUB_BITS;
+            int shift = magnitude - SUB_BITS;
+            long lower = (long) (SUB | (index & (SUB - 1))) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        /** 第Q分位数（0 < Q <= 1）的上界 */
+        long percentile(double q) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        String row(String name) {
+            return String.format(Locale.ROOT, "%-24s %8d %12d %12.2f %10.1f %10.1f %10.1f %10.1f",
+                    name, count.sum(), bytes.sum(), totalNanos.sum() / 1e6,
+                    percentile(0.5) / 1e3, percentile(0.9) / 1e3, percentile(0.99) / 1e3, maxNanos.get() / 1e3);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"count\":%d,\"bytes\":%d,\"totalNanos\":%d,\"p50Nanos\":%d,\"p90Nanos\":%d,"
+                            + "\"p99Nanos\":%d,\"maxNanos\":%d}",
+                    count.sum(), bytes.sum(), totalNanos.sum(), percentile(0.5), percentile(0.9),
+                    percentile(0.99), maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 将一个文件两个版本之间的diff格式化为unified格式（与 diff -u / git diff 相同）
+ * 每个hunk前后保留CONTEXT行上下文 间隔不超过2*CONTEXT行的修改合并到同一个hunk中
+ */
+class UnifiedDiff {
+
+    static final int CONTEXT = 3;
+    private static final String NO_NEWLINE = "\\ No newline at end of file\n";
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * 返回PATH从OLDCONTENT变为NEWCONTENT的unified diff  两个版本内容相同时返回空数组
+     * OLDCONTENT为null表示新增的文件 NEWCONTENT为null表示删除的文件
+     */
+    static byte[] format(String path, byte[] oldContent, byte[] newContent) {
+        return format(path, path, oldContent, newContent);
+    }
+
+    /**
+     * 重命名或复制的文件：OLDPATH为原文件名 NEWPATH为新文件名
+     * HEADERS为diff头部之后的额外说明行（例如 "similarity index 90%"） 即使内容完全相同也会输出
+     */
+    static byte[] format(String oldPath, String newPath, byte[] oldContent, byte[] newContent,
+                         String... headers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(oldPath, newPath, oldContent, newContent, headers, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(String oldPath, String newPath, byte[] oldContent, byte[] newContent,
+                              String[] headers, OutputStream out) throws IOException {
+        byte[] a = oldContent == null ? new byte[0] : oldContent;
+        byte[] b = newContent == null ? new byte[0] : newContent;
+        boolean binary = ContentMerge.isBinary(a) || ContentMerge.isBinary(b);
+        Diff.Lines oldLines = Diff.Lines.split(a);
+        Diff.Lines newLines = Diff.Lines.split(b);
+        List<Diff.Edit> edits = null;
+        if (!binary) {
+            int[][] seqs = Diff.intern(oldLines, newLines);
+            edits = Diff.diff(seqs[0], seqs[1]);
+            if (edits.isEmpty() && headers.length == 0 && (oldContent == null) == (newContent == null)) {
+                return;
+            }
+        }
+
+        print(out, "diff --gitlet a/" + oldPath + " b/" + newPath + "\n");
+        for (String header : headers) {
+            print(out, header + "\n");
+        }
+        if (oldContent == null) {
+            print(out, "new file\n");
+        } else if (newContent == null) {
+            print(out, "deleted file\n");
+        }
+        if (binary) {
+            print(out, "Binary files " + (oldContent == null ? "/dev/null" : "a/" + oldPath)
+                    + " and " + (newContent == null ? "/dev/null" : "b/" + newPath) + " differ\n");
+            return;
+        }
+        if (edits.isEmpty()) {
+            return;
+        }
+        print(out, "--- " + (oldContent == null ? "/dev/null" : "a/" + oldPath) + "\n");
+        print(out, "+++ " + (newContent == null ? "/dev/null" : "b/" + newPath) + "\n");
+
+        int i = 0;
+        while (i < edits.size()) {
+            //找出属于同一个hunk的修改[i, j)
+            int j = i + 1;
+            while (j < edits.size() && edits.get(j).aStart - edits.get(j - 1).aEnd <= 2 * CONTEXT) {
+                j++;
+            }
+            Diff.Edit first = edits.get(i);
+            Diff.Edit last = edits.get(j - 1);
+            int aFrom = Math.max(0, first.aStart - CONTEXT);
+            int aTo = Math.min(oldLines.size(), last.aEnd + CONTEXT);
+            int bFrom = first.bStart - (first.aStart - aFrom);
+            int bTo = last.bEnd + (aTo - last.aEnd);
+            print(out, "@@ -" + range(aFrom, aTo) + " +" + range(bFrom, bTo) + " @@\n");
+            int pos = aFrom;
+            for (int k = i; k < j; k++) {
+                Diff.Edit e = edits.get(k);
+                lines(out, ' ', oldLines, pos, e.aStart);
+                lines(out, '-', oldLines, e.aStart, e.aEnd);
+                lines(out, '+', newLines, e.bStart, e.bEnd);
+                pos = e.aEnd;
+            }
+            lines(out, ' ', oldLines, pos, aTo);
+            i = j;
+        }
+    }
+
+    /** hunk头部中的行范围  行号从1开始 空范围的起始行为前一行 */
+    private static String range(int from, int to) {
+        int count = to - from;
+        int start = count == 0 ? from : from + 1;
+        return count == 1 ? String.valueOf(start) : start + "," + count;
+    }
+
+    private static void lines(OutputStream out, char prefix, Diff.Lines lines, int from, int to)
+            throws IOException {
+        for (int k = from; k < to; k++) {
+            out.write(prefix);
+            out.write(lines.data, lines.start(k), lines.end(k) - lines.start(k));
+            if (k == lines.size() - 1 && !lines.endsWithNewline()) {
+                out.write('\n');
+                print(out, NO_NEWLINE);
+            }
+        }
+    }
+
+    private static void print(OutputStream out, String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
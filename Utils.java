@@ -1,9 +1,9 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -35,15 +35,20 @@ class Utils {
 
     /** 返回VALS的连接的SHA-1哈希值，VALS可以是任何混合的字节数组和字符串。 */
     static String sha1(Object... vals) {
+        long start = Trace.start();
+        long size = 0;
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
             for (Object val : vals) {
                 if (val instanceof byte[]) {
                     //如果是字节数组，则直接使用这些字节
                     md.update((byte[]) val);
+                    size += ((byte[]) val).length;
                 } else if (val instanceof String) {
                     //如果参数是字符串，则会先将字符串转换为UTF-8编码的字节，再用于哈希
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
+                    byte[] bytes = ((String) val).getBytes(StandardCharsets.UTF_8);
+                    md.update(bytes);
+                    size += bytes.length;
                 } else {
                     throw new IllegalArgumentException("improper type to sha1");
                 }
@@ -52,6 +57,7 @@ class Utils {
             for (byte b : md.digest()) {
                 result.format("%02x", b);
             }
+            Trace.record(Trace.Op.SHA1, start, size);
             return result.toString();
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
@@ -107,8 +113,11 @@ class Utils {
         if (!file.isFile()) {
             throw new IllegalArgumentException("must be a normal file");
         }
+        long start = Trace.start();
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] contents = Files.readAllBytes(file.toPath());
+            Trace.record(Trace.Op.READ_CONTENTS, start, contents.length);
+            return contents;
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -132,6 +141,8 @@ class Utils {
      * CONTENTS中的每个对象可以是字符串或字节数组。如果出现问题则抛出IllegalArgumentException。
      */
     static void writeContents(File file, Object... contents) {
+        long start = Trace.start();
+        long size = 0;
         try {
             if (file.isDirectory()) {
                 throw new IllegalArgumentException("cannot overwrite directory");
@@ -139,13 +150,13 @@ class Utils {
             BufferedOutputStream str =
                 new BufferedOutputStream(Files.newOutputStream(file.toPath()));
             for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
+                byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                str.write(bytes);
+                size += bytes.length;
             }
             str.close();
+            Trace.record(Trace.Op.WRITE_CONTENTS, start, size);
         } catch (IOException | ClassCastException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -157,16 +168,18 @@ class Utils {
      * 如果出现问题则抛出IllegalArgumentException。 */
     static <T extends Serializable> T readObject(File file,
                                                  Class<T> expectedClass) {
+        long start = Trace.start();
         try {
-            //创建FileInputStream对象 读取文件内容
-            //将 FileInputStream 传递给 ObjectInputStream 的构造函数，创建一个 ObjectInputStream 对象 in。
+            //一次读入整个文件 再从内存中反序列化：直接在FileInputStream上反序列化时 每个字段都是一次read系统调用，
+            //在冷缓存或网络文件系统上每次都要等待
             // ObjectInputStream 能够读取序列化的对象。
             ObjectInputStream in =
-                new ObjectInputStream(new FileInputStream(file));
+                new ObjectInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
             //调用redObject()方法 读取序列化对象  AKA：将 文件中的 字节流--反序列化成--对象（所以下面readObject()方法返回的类型为对象
             //将读取的对象转换为期望的类型，并返回结果。
             T result = expectedClass.cast(in.readObject());
             in.close();
+            Trace.record(Trace.Op.READ_OBJECT, start, file.length());
             //返回读取并转换的对象
             return result;
         } catch (IOException | ClassCastException
@@ -180,7 +193,10 @@ class Utils {
      * 序列化 并将其写入文件 */
     static void writeObject(File file, Serializable obj) {
         //serialize方法将obj对象转换为字节数组返回
-        writeContents(file, serialize(obj));
+        long start = Trace.start();
+        byte[] bytes = serialize(obj);
+        writeContents(file, bytes);
+        Trace.record(Trace.Op.WRITE_OBJECT, start, bytes.length);
     }
 
     /* DIRECTORIES */
@@ -200,7 +216,9 @@ class Utils {
      *  not denote a directory. */
     /** 返回DIR目录中所有普通文件的名称列表，按字典顺序排列为Java字符串。如果DIR不表示目录，则返回null。 */
     static List<String> plainFilenamesIn(File dir) {
+        long start = Trace.start();
         String[] files = dir.list(PLAIN_FILES);
+        Trace.record(Trace.Op.LIST_FILES, start, 0);
         if (files == null) {
             return null;
         } else {
@@ -0,0 +1,138 @@
+package gitlet;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * 进程中所有仓库共享的有界线程池（只在命令内部使用 执行命令的线程由调用者提供 见GitletRepository）
+ *
+ * status的工作目录快照、checkout的并行写入、大文件分块保存等I/O任务都提交到这里，
+ * 而不是每个命令各自创建线程池：同一个JVM中对成千上万个仓库并发执行命令时，线程数不会随仓库数增长。
+ *
+ * 运行在Java 21及以上时使用虚拟线程（通过反射调用Executors.newVirtualThreadPerTaskExecutor 编译目标仍是Java 8），
+ * 任务中的阻塞I/O不占用平台线程；同时运行的任务数由Semaphore限制为MAX_CONCURRENCY。
+ * 更早的JVM上退回到MAX_CONCURRENCY个守护线程的固定线程池。
+ *
+ * 提交到这里的任务不能等待另一个提交到这里的任务 否则并发量大时可能耗尽全部额度而死锁；
+ * 需要在任务中再并行的（如checkout写入分块保存的大文件）使用forEach：调用线程自己也领取并执行其中的项，
+ * 只等待已经开始执行的项。
+ */
+final class Workers {
+
+    /** 同时运行的任务数上限 */
+    static final int MAX_CONCURRENCY = Math.min(256, Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+
+    private static final ExecutorService VIRTUAL = virtualExecutor();
+    private static final ExecutorService EXECUTOR = VIRTUAL != null ? VIRTUAL : platformExecutor();
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENCY);
+
+    private Workers() {
+    }
+
+    /** 是否使用虚拟线程 */
+    static boolean isVirtual() {
+        return VIRTUAL != null;
+    }
+
+    /** 提交TASK */
+    static <T> Future<T> submit(Callable<T> task) {
+        if (VIRTUAL == null) {
+            return EXECUTOR.submit(task);
+        }
+        return EXECUTOR.submit(() -> {
+            PERMITS.acquire();
+            try {
+                return task.call();
+            } finally {
+                PERMITS.release();
+            }
+        });
+    }
+
+    /**
+     * 并行执行ACTION(0) ... ACTION(COUNT - 1) 全部完成后返回
+     * 调用线程也领取并执行其中的项：线程池没有空闲时由调用线程全部执行，
+     * 只等待已经被其他线程领取的项 因此可以在提交到这里的任务中调用。
+     * 某一项抛出RuntimeException后不再领取新的项 等已领取的项结束后抛出该异常。
+     */
+    static void forEach(int count, IntConsumer action) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Callable<Void> worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < count) {
+                try {
+                    if (failure.get() == null) {
+                        action.accept(i);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    synchronized (done) {
+                        if (done.incrementAndGet() == count) {
+                            done.notifyAll();
+                        }
+                    }
+                }
+            }
+            return null;
+        };
+        Future<?>[] helpers = new Future<?>[Math.max(0, Math.min(count - 1, MAX_CONCURRENCY - 1))];
+        for (int k = 0; k < helpers.length; k++) {
+            helpers[k] = submit(worker);
+        }
+        try {
+            worker.call();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        //还没有开始的不再需要 已领取的项一定在某个正在运行的线程上 最终会完成
+        for (Future<?> helper : helpers) {
+            helper.cancel(false);
+        }
+        boolean interrupted = false;
+        synchronized (done) {
+            while (done.get() < count) {
+                try {
+                    done.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static ExecutorService virtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService platformExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "gitlet-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(MAX_CONCURRENCY, factory);
+    }
+}
@@ -0,0 +1,113 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 同一个JVM中对多个仓库并发执行命令的吞吐量
+ *
+ * 每次调用对REPOS个仓库各执行一次命令 由THREADS个线程并发执行，结果为每秒完成的命令数。
+ * 与其他调用者一样 执行命令的线程由这里自己的线程池提供（命令会等待内部共享线程池Workers中的任务 不能在其中执行），
+ * 命令内部的并行I/O仍然使用Workers。
+ * 比较不同THREADS下的结果即可看出吞吐量随核数的扩展情况：
+ *     java -jar target/benchmarks.jar ConcurrencyBenchmark -p threads=1,2,4,8,16
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    /** 仓库数  也是每次调用执行的命令数 */
+    private static final int REPOS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Repos {
+        /** 执行命令的线程数 */
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+        /** 每个仓库的文件数 */
+        @Param({"100"})
+        public int files;
+
+        List<SyntheticRepo> repos = new ArrayList<>();
+        ExecutorService pool;
+        int round;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            for (int i = 0; i < REPOS; i++) {
+                repos.add(SyntheticRepo.create(files, 10, 1));
+            }
+            pool = Executors.newFixedThreadPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            pool.shutdown();
+            for (SyntheticRepo repo : repos) {
+                repo.close();
+            }
+        }
+
+        /** 对每个仓库执行COMMAND 等待全部完成 */
+        void forEach(RepoCommand command) throws InterruptedException, ExecutionException {
+            List<Future<Object>> results = new ArrayList<>(repos.size());
+            for (SyntheticRepo repo : repos) {
+                results.add(pool.submit(() -> command.run(repo)));
+            }
+            for (Future<Object> result : results) {
+                result.get();
+            }
+        }
+    }
+
+    interface RepoCommand {
+        Object run(SyntheticRepo repo) throws Exception;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPOS)
+    public void status(Repos repos) throws Exception {
+        repos.forEach(repo -> repo.gitlet.status());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPOS)
+    public void log(Repos repos) throws Exception {
+        repos.forEach(repo -> repo.gitlet.log());
+    }
+
+    /** 修改并暂存一个文件后commit */
+    @Benchmark
+    @OperationsPerInvocation(REPOS)
+    public void commit(Repos repos) throws Exception {
+        int index = repos.round++ % repos.files;
+        repos.forEach(repo -> {
+            repo.modify(index);
+            return repo.gitlet.commit("benchmark commit");
+        });
+    }
+}
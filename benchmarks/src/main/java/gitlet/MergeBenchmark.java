@@ -0,0 +1,141 @@
+package gitlet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * merge中文件级的分类（MergeEngine.classify） 不读写文件
+ *
+ * 拆分点有FILES个文件 两个分支各修改其中1%、删除0.5%、新增0.5%（两边修改的文件有一部分重叠）。
+ * classify为merge实际的调用方式（commit中的PathTable 没有重命名）；
+ * threePass为原来merge中的三遍扫描（modifiedOrAddInMergedBranch、deletedInMergedBranch、bothModified）作为对照。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Commits {
+        /** 拆分点中的文件数 */
+        @Param({"1000", "100000"})
+        public int files;
+
+        HashMap<String, String> base;
+        HashMap<String, String> ours;
+        HashMap<String, String> theirs;
+        PathTable baseTable;
+        PathTable oursTable;
+        PathTable theirsTable;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            base = new HashMap<>();
+            for (int i = 0; i < files; i++) {
+                base.put(path(i), Utils.sha1("base " + i));
+            }
+            ours = branch(random, "ours");
+            theirs = branch(random, "theirs");
+            baseTable = PathTable.of(base);
+            oursTable = PathTable.of(ours);
+            theirsTable = PathTable.of(theirs);
+        }
+
+        private HashMap<String, String> branch(Random random, String name) {
+            HashMap<String, String> blobs = new HashMap<>(base);
+            int changes = Math.max(1, files / 100);
+            for (int k = 0; k < changes; k++) {
+                int i = random.nextInt(files);
+                blobs.put(path(i), Utils.sha1(name + " " + i));
+            }
+            for (int k = 0; k < changes / 2; k++) {
+                blobs.remove(path(random.nextInt(files)));
+                blobs.put(String.format("new/%s/file%06d.txt", name, k), Utils.sha1(name + " new " + k));
+            }
+            return blobs;
+        }
+
+        private static String path(int i) {
+            return String.format("src/dir%03d/file%06d.txt", i % 997, i);
+        }
+    }
+
+    @Benchmark
+    public List<MergeEngine.Change> classify(Commits commits) {
+        return MergeEngine.classify(commits.baseTable, commits.oursTable, commits.theirsTable,
+                Collections.<RenameDetector.Rename>emptyList(), Collections.<RenameDetector.Rename>emptyList());
+    }
+
+    @Benchmark
+    public List<MergeEngine.Change> classifyHashMap(Commits commits) {
+        return MergeEngine.classify(commits.base, commits.ours, commits.theirs);
+    }
+
+    @Benchmark
+    public int threePass(Commits commits) {
+        return threePass(commits.base, commits.ours, commits.theirs);
+    }
+
+    /** 原来merge中的三遍扫描  返回需要处理的文件数 */
+    private static int threePass(Map<String, String> split, Map<String, String> cur, Map<String, String> merged) {
+        HashSet<String> modifiedOrAdd = new HashSet<>();
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !split.get(fileName).equals(entry.getValue())
+                    && cur.containsKey(fileName) && cur.get(fileName).equals(split.get(fileName))) {
+                modifiedOrAdd.add(fileName);
+            } else if (!split.containsKey(fileName) && !cur.containsKey(fileName)) {
+                modifiedOrAdd.add(fileName);
+            }
+        }
+        HashSet<String> deleted = new HashSet<>();
+        for (Map.Entry<String, String> entry : cur.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !merged.containsKey(fileName)
+                    && entry.getValue().equals(split.get(fileName))) {
+                deleted.add(fileName);
+            }
+        }
+        HashSet<String> bothModified = new HashSet<>();
+        for (Map.Entry<String, String> entry : cur.entrySet()) {
+            String fileName = entry.getKey();
+            String curVersion = entry.getValue();
+            String splitVersion = split.get(fileName);
+            String mergedVersion = merged.get(fileName);
+            if (splitVersion == null && mergedVersion != null && !curVersion.equals(mergedVersion)
+                    || splitVersion != null && mergedVersion != null && !splitVersion.equals(curVersion)
+                    && !splitVersion.equals(mergedVersion) && !curVersion.equals(mergedVersion)
+                    || splitVersion != null && !splitVersion.equals(curVersion) && mergedVersion == null) {
+                bothModified.add(fileName);
+            }
+        }
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !split.get(fileName).equals(entry.getValue())
+                    && !cur.containsKey(fileName)) {
+                bothModified.add(fileName);
+            }
+        }
+        return modifiedOrAdd.size() + deleted.size() + bothModified.size();
+    }
+}
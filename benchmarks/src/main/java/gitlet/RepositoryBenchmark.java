@@ -0,0 +1,180 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GitletRepository中的命令  每个fork（每个基准方法和参数组合）生成一个新的合成仓库（见SyntheticRepo）
+ *
+ * 会修改仓库的命令（add、commit、merge、checkoutCommit）在每次调用前由Level.Invocation的setup准备好状态，
+ * setup的时间不计入结果。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Repo {
+        /** 工作目录中的文件数 */
+        @Param({"100", "1000"})
+        public int files;
+        /** master上初始commit之后的commit数 */
+        @Param({"50"})
+        public int depth;
+        /** 从master分出的分支数 */
+        @Param({"4"})
+        public int branches;
+
+        SyntheticRepo repo;
+        GitletRepository gitlet;
+        /** 生成后master最新的commit  merge每次都从这里开始 */
+        String master;
+        /** checkoutCommit在这两个commit之间来回切换 */
+        String[] targets;
+        int next;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            repo = SyntheticRepo.create(files, depth, branches);
+            gitlet = repo.gitlet;
+            master = repo.head("master");
+            targets = new String[]{master, repo.head(SyntheticRepo.branch(0))};
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            repo.close();
+        }
+    }
+
+    /** add：每次调用前修改一个文件 */
+    @State(Scope.Benchmark)
+    public static class ModifiedFile {
+        int index;
+
+        @Setup(Level.Invocation)
+        public void modify(Repo repo) {
+            index = (index + 1) % repo.files;
+            Utils.writeContents(repo.repo.file(index), "modified " + System.nanoTime() + "\n");
+        }
+    }
+
+    /** commit：每次调用前暂存一个修改 */
+    @State(Scope.Benchmark)
+    public static class StagedChange {
+        int index;
+
+        @Setup(Level.Invocation)
+        public void stage(Repo repo) {
+            index = (index + 1) % repo.files;
+            repo.repo.modify(index);
+        }
+    }
+
+    /** merge：每次调用前把master恢复到合并前的commit */
+    @State(Scope.Benchmark)
+    public static class BeforeMerge {
+        @Setup(Level.Invocation)
+        public void restore(Repo repo) {
+            if (!repo.repo.head("master").equals(repo.master)) {
+                repo.gitlet.checkoutCommit(repo.repo.commit(repo.master));
+                repo.gitlet.updateBranch("master", repo.master);
+            }
+        }
+    }
+
+    /**
+     * 冷缓存的log：每次调用前清空进程中的commit缓存，能写入 /proc/sys/vm/drop_caches 时（Linux root）
+     * 同时丢弃操作系统的页缓存 每个commit都要从磁盘读取
+     */
+    @State(Scope.Benchmark)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void drop() {
+            CommitCache.clear();
+            File dropCaches = new File("/proc/sys/vm/drop_caches");
+            if (dropCaches.canWrite()) {
+                try (FileWriter out = new FileWriter(dropCaches)) {
+                    out.write("3\n");
+                } catch (IOException e) {
+                    //只清空commit缓存
+                }
+            }
+        }
+    }
+
+    /** checkoutCommit：每次调用切换到另一个commit */
+    @State(Scope.Benchmark)
+    public static class CheckoutTarget {
+        Commit target;
+        String targetID;
+
+        @Setup(Level.Invocation)
+        public void pick(Repo repo) {
+            repo.next = 1 - repo.next;
+            targetID = repo.targets[repo.next];
+            target = repo.repo.commit(targetID);
+        }
+    }
+
+    @Benchmark
+    public void add(Repo repo, ModifiedFile file) {
+        repo.gitlet.add(repo.repo.name(file.index));
+    }
+
+    @Benchmark
+    public String commit(Repo repo, StagedChange change) {
+        return repo.gitlet.commit("benchmark commit");
+    }
+
+    @Benchmark
+    public GitletRepository.Status status(Repo repo) {
+        return repo.gitlet.status();
+    }
+
+    @Benchmark
+    public List<GitletRepository.LogEntry> log(Repo repo) {
+        return repo.gitlet.log();
+    }
+
+    @Benchmark
+    public List<GitletRepository.LogEntry> logColdCache(Repo repo, ColdCache cold) {
+        return repo.gitlet.log();
+    }
+
+    @Benchmark
+    public String getSplitPointID(Repo repo) {
+        return repo.gitlet.getSplitPointID(SyntheticRepo.branch(repo.branches - 1));
+    }
+
+    @Benchmark
+    public GitletRepository.MergeResult merge(Repo repo, BeforeMerge state) {
+        return repo.gitlet.merge(SyntheticRepo.branch(0));
+    }
+
+    @Benchmark
+    public void checkoutCommit(Repo repo, CheckoutTarget target) {
+        repo.gitlet.checkoutCommit(target.target);
+        repo.gitlet.updateBranch("master", target.targetID);
+    }
+}
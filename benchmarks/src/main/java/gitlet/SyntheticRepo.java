@@ -0,0 +1,132 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/**
+ * 基准测试用的合成仓库
+ *
+ * 仓库在临时目录中创建 命令都在它的GitletRepository实例（gitlet）上执行。
+ * 内容由固定的随机数种子生成 同样的参数总是得到同样的仓库。
+ *
+ * 仓库结构：
+ *   master上一个包含FILES个文件的初始commit 之后DEPTH个commit 每个修改约1%的文件；
+ *   BRANCHES个分支从master分出 每个分支上BRANCH_COMMITS个commit 只修改该分支自己的文件，
+ *   master上再有BRANCH_COMMITS个commit 只修改其余的文件。因此每个分支都可以无冲突地合并到master。
+ */
+class SyntheticRepo {
+
+    static final int BRANCH_COMMITS = 3;
+    private static final int LINES_PER_FILE = 32;
+
+    final File dir;
+    final int files;
+    final GitletRepository gitlet;
+    private final Random random = new Random(42);
+
+    private SyntheticRepo(File dir, int files) {
+        this.dir = dir;
+        this.files = files;
+        this.gitlet = GitletRepository.init(dir);
+    }
+
+    /** 在临时目录中生成仓库 */
+    static SyntheticRepo create(int files, int depth, int branches) throws IOException {
+        File dir = Files.createTempDirectory("gitlet-bench").toFile();
+        SyntheticRepo repo = new SyntheticRepo(dir, files);
+        repo.generate(depth, branches);
+        return repo;
+    }
+
+    private void generate(int depth, int branches) {
+        for (int i = 0; i < files; i++) {
+            writeContents(file(i), content());
+            gitlet.add(name(i));
+        }
+        gitlet.commit("initial files");
+        int changed = Math.max(1, files / 100);
+        for (int d = 0; d < depth; d++) {
+            for (int k = 0; k < changed; k++) {
+                modify(random.nextInt(files));
+            }
+            gitlet.commit("history " + d);
+        }
+        //分支b只修改下标为 b (mod branches+1) 的文件 master修改下标为 branches (mod branches+1) 的文件
+        for (int b = 0; b < branches; b++) {
+            gitlet.newBranch(branch(b));
+            gitlet.checkoutBranch(branch(b));
+            commitOn(b, branches + 1);
+            gitlet.checkoutBranch("master");
+        }
+        commitOn(branches, branches + 1);
+    }
+
+    private void commitOn(int residue, int modulus) {
+        for (int c = 0; c < BRANCH_COMMITS; c++) {
+            for (int i = residue; i < files; i += modulus * 7) {
+                modify(i);
+            }
+            gitlet.commit("branch commit " + residue + "." + c);
+        }
+    }
+
+    /** 修改第I个文件的一行并暂存 */
+    void modify(int i) {
+        String[] lines = readContentsAsString(file(i)).split("\n", -1);
+        lines[random.nextInt(LINES_PER_FILE)] = line();
+        writeContents(file(i), String.join("\n", lines));
+        gitlet.add(name(i));
+    }
+
+    static String branch(int b) {
+        return "branch" + b;
+    }
+
+    String name(int i) {
+        return String.format("file%05d.txt", i);
+    }
+
+    File file(int i) {
+        return join(dir, name(i));
+    }
+
+    /** 分支BRANCH最新commit的ID */
+    String head(String branch) {
+        return gitlet.branchHead(branch);
+    }
+
+    Commit commit(String ID) {
+        return gitlet.getCommit(ID);
+    }
+
+    private String content() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINES_PER_FILE; i++) {
+            sb.append(line()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String line() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    /** 关闭仓库 删除临时目录 */
+    void close() throws IOException {
+        gitlet.close();
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Utils中的哈希和序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Content {
+        @Param({"1024", "1048576"})
+        public int size;
+
+        byte[] data;
+
+        @Setup
+        public void setup() {
+            data = new byte[size];
+            new Random(42).nextBytes(data);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Objects {
+        /** commit中的文件数 */
+        @Param({"100", "10000"})
+        public int files;
+
+        Commit commit;
+        File file;
+
+        @Setup
+        public void setup() throws IOException {
+            HashMap<String, String> blobs = new HashMap<>();
+            for (int i = 0; i < files; i++) {
+                blobs.put(String.format("file%05d.txt", i), Utils.sha1("blob " + i));
+            }
+            commit = new Commit(new Date(0), "benchmark", new String[]{Utils.sha1("parent")}, blobs);
+            file = Files.createTempFile("gitlet-bench", ".commit").toFile();
+            Utils.writeObject(file, commit);
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public String sha1(Content content) {
+        return Utils.sha1(content.data);
+    }
+
+    @Benchmark
+    public Commit readObject(Objects objects) {
+        return Utils.readObject(objects.file, Commit.class);
+    }
+
+    @Benchmark
+    public void writeObject(Objects objects) {
+        Utils.writeObject(objects.file, objects.commit);
+    }
+}
@@ -0,0 +1,82 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/** batch命令：某一行出错时打印错误信息 继续执行后面的行 */
+public class BatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** 在DIR中用新的JVM运行 java gitlet.Main ARGS  返回 {退出码, 标准输出} */
+    static String[] runGitlet(File dir, String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 4];
+        command[0] = new File(System.getProperty("java.home"), "bin/java").getPath();
+        command[1] = "-cp";
+        command[2] = System.getProperty("java.class.path");
+        command[3] = "gitlet.Main";
+        System.arraycopy(args, 0, command, 4, args.length);
+        Process process = new ProcessBuilder(command).directory(dir).redirectErrorStream(true).start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        int status = process.waitFor();
+        return new String[]{String.valueOf(status), new String(out.toByteArray(), StandardCharsets.UTF_8)};
+    }
+
+    @Test
+    public void incorrectOperandsDoNotStopTheBatch() throws Exception {
+        File dir = folder.getRoot();
+        File script = new File(dir, "script.txt");
+        Files.write(script.toPath(), ("init\n"
+            + "rm-branch\n"
+            + "branch a b\n"
+            + "branch dev\n"
+            + "status\n").getBytes(StandardCharsets.UTF_8));
+        String[] result = runGitlet(dir, "batch", "script.txt");
+        assertEquals(result[1], "0", result[0]);
+        String output = result[1];
+        assertEquals(output, 2, output.split("Incorrect operands\\.", -1).length - 1);
+        assertFalse(output, output.contains("Exception"));
+        assertTrue(output, output.contains("=== Branches ===\n*master\ndev\n"));
+    }
+
+    @Test
+    public void otherErrorsDoNotStopTheBatch() throws Exception {
+        File dir = folder.getRoot();
+        runGitlet(dir, "init");
+        new File(dir, "d").mkdir();
+        Files.write(new File(dir, "a.txt").toPath(), "a\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "script.txt").toPath(),
+            "add d\nadd a.txt\ncommit one\nlog\n".getBytes(StandardCharsets.UTF_8));
+        String[] result = runGitlet(dir, "batch", "script.txt");
+        assertEquals(result[1], "0", result[0]);
+        assertFalse(result[1], result[1].contains("Exception"));
+        assertTrue(result[1], result[1].contains("\none\n"));
+    }
+
+    @Test
+    public void incorrectOperandsOutsideBatchStillFail() throws Exception {
+        File dir = folder.getRoot();
+        runGitlet(dir, "init");
+        String[] result = runGitlet(dir, "rm-branch");
+        assertNotEquals(result[1], "0", result[0]);
+        assertTrue(result[1], result[1].contains("Incorrect operands."));
+    }
+}
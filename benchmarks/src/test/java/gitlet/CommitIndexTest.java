@@ -0,0 +1,60 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** CommitIndex：损坏或截断的索引文件和commits目录中的无关文件 */
+public class CommitIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String A = Utils.sha1("a");
+    private static final String B = Utils.sha1("b");
+
+    private CommitIndex index;
+    private File indexFile;
+
+    private void createCommits() throws IOException {
+        File commitsDir = folder.newFolder("commits");
+        for (String ID : new String[]{A, B}) {
+            File dir = new File(commitsDir, ID.substring(0, 2));
+            dir.mkdirs();
+            new File(dir, ID.substring(2)).createNewFile();
+        }
+        new File(commitsDir, "stray").createNewFile();
+        indexFile = new File(folder.getRoot(), "commit-index");
+        index = new CommitIndex(indexFile, commitsDir);
+    }
+
+    @Test
+    public void rebuildsCorruptIndex() throws IOException {
+        createCommits();
+        for (byte[] content : Arrays.asList(new byte[0], "GC".getBytes(), "XXXXXXXXXXXXXXXXXXXXXXXXXXXX".getBytes(),
+                new byte[]{'G', 'C', 'I', 'X', 0, 0, 0, 5})) {
+            Files.write(indexFile.toPath(), content);
+            index.close();
+            assertEquals(A, index.resolve(A.substring(0, 6)));
+            assertEquals(B, index.resolve(B.substring(0, 6)));
+        }
+    }
+
+    @Test
+    public void rebuildsTruncatedAppend() throws IOException {
+        createCommits();
+        assertEquals(A, index.resolve(A.substring(0, 6)));
+        byte[] full = Files.readAllBytes(indexFile.toPath());
+        Files.write(indexFile.toPath(), Arrays.copyOf(full, full.length - 3));
+        index.close();
+        assertEquals(B, index.resolve(B.substring(0, 6)));
+        assertEquals(A, index.resolve(A.substring(0, 6)));
+    }
+}
@@ -0,0 +1,87 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/** 行级三路合并：不相交、相邻和重叠的修改 */
+public class ContentMergeTest {
+
+    private static final String BASE = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+
+    private static String merged;
+
+    private static int merge(String base, String ours, String theirs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int conflicts = ContentMerge.merge(base == null ? null : base.getBytes(StandardCharsets.UTF_8),
+            ours.getBytes(StandardCharsets.UTF_8), theirs.getBytes(StandardCharsets.UTF_8), "HEAD", "other", out);
+        merged = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        return conflicts;
+    }
+
+    @Test
+    public void disjointHunksMergeCleanly() throws IOException {
+        assertEquals(0, merge(BASE, BASE.replace("2\n", "two\n"), BASE.replace("8\n", "eight\n")));
+        assertEquals("1\ntwo\n3\n4\n5\n6\n7\neight\n9\n10\n", merged);
+
+        //一边插入 一边删除
+        assertEquals(0, merge(BASE, "0\n" + BASE, BASE.replace("9\n", "")));
+        assertEquals("0\n1\n2\n3\n4\n5\n6\n7\n8\n10\n", merged);
+    }
+
+    @Test
+    public void oneSideOrSameChange() throws IOException {
+        assertEquals(0, merge(BASE, BASE, BASE.replace("5\n", "five\n")));
+        assertEquals(BASE.replace("5\n", "five\n"), merged);
+        assertEquals(0, merge(BASE, BASE.replace("5\n", "five\n"), BASE));
+        assertEquals(BASE.replace("5\n", "five\n"), merged);
+        assertEquals(0, merge(BASE, BASE.replace("5\n", "five\n"), BASE.replace("5\n", "five\n")));
+        assertEquals(BASE.replace("5\n", "five\n"), merged);
+    }
+
+    @Test
+    public void adjacentHunksConflict() throws IOException {
+        //在base中相邻的修改归为同一组（与diff3相同） 两边内容不同时冲突
+        assertEquals(1, merge(BASE, BASE.replace("4\n", "four\n"), BASE.replace("5\n", "five\n")));
+        assertEquals("1\n2\n3\n"
+            + "<<<<<<< HEAD\nfour\n5\n=======\n4\nfive\n>>>>>>> other\n"
+            + "6\n7\n8\n9\n10\n", merged);
+    }
+
+    @Test
+    public void overlappingHunksConflict() throws IOException {
+        String ours = BASE.replace("4\n5\n6\n", "x\n");
+        String theirs = BASE.replace("5\n6\n7\n", "y\nz\n");
+        assertEquals(1, merge(BASE, ours, theirs));
+        assertEquals("1\n2\n3\n"
+            + "<<<<<<< HEAD\nx\n7\n=======\n4\ny\nz\n>>>>>>> other\n"
+            + "8\n9\n10\n", merged);
+    }
+
+    @Test
+    public void separateConflictsAreCountedSeparately() throws IOException {
+        String ours = BASE.replace("2\n", "a\n").replace("8\n", "b\n");
+        String theirs = BASE.replace("2\n", "c\n").replace("8\n", "d\n");
+        assertEquals(2, merge(BASE, ours, theirs));
+        assertEquals("1\n<<<<<<< HEAD\na\n=======\nc\n>>>>>>> other\n3\n4\n5\n6\n7\n"
+            + "<<<<<<< HEAD\nb\n=======\nd\n>>>>>>> other\n9\n10\n", merged);
+    }
+
+    @Test
+    public void bothAddedWithoutBase() throws IOException {
+        assertEquals(0, merge(null, "same\n", "same\n"));
+        assertEquals("same\n", merged);
+        assertEquals(1, merge(null, "ours", "theirs"));
+        assertEquals("<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>> other\n", merged);
+    }
+
+    @Test
+    public void binaryDetection() {
+        assertTrue(ContentMerge.isBinary(new byte[]{'a', 0, 'b'}));
+        assertFalse(ContentMerge.isBinary("文本\n".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,133 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Diff的修改列表应用到a上应得到b 且修改的行数最少（与最长公共子序列对照） */
+public class DiffTest {
+
+    /** 按EDITS把A改写为B  同时检查修改按位置排序、互不重叠且不相邻，未修改的部分与B一致 */
+    private static int[] apply(int[] a, int[] b, List<Diff.Edit> edits) {
+        int[] result = new int[b.length];
+        int n = 0;
+        int aPos = 0;
+        int bPos = 0;
+        for (Diff.Edit edit : edits) {
+            assertTrue(edit.toString(), edit.aStart <= edit.aEnd && edit.bStart <= edit.bEnd);
+            assertTrue(edit.toString(), edit.aEnd > edit.aStart || edit.bEnd > edit.bStart);
+            assertEquals(edit.toString(), edit.aStart - aPos, edit.bStart - bPos);
+            assertTrue(edit.toString(), edit.aStart > aPos || edit == edits.get(0));
+            while (aPos < edit.aStart) {
+                result[n++] = a[aPos++];
+            }
+            for (int k = edit.bStart; k < edit.bEnd; k++) {
+                result[n++] = b[k];
+            }
+            aPos = edit.aEnd;
+            bPos = edit.bEnd;
+        }
+        assertEquals(a.length - aPos, b.length - bPos);
+        while (aPos < a.length) {
+            result[n++] = a[aPos++];
+        }
+        return result;
+    }
+
+    private static int lcs(int[] a, int[] b) {
+        int[][] dp = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                dp[i][j] = a[i - 1] == b[j - 1] ? dp[i - 1][j - 1] + 1 : Math.max(dp[i - 1][j], dp[i][j - 1]);
+            }
+        }
+        return dp[a.length][b.length];
+    }
+
+    private static int[] randomSeq(Random random, int length, int alphabet) {
+        int[] seq = new int[length];
+        for (int i = 0; i < length; i++) {
+            seq[i] = random.nextInt(alphabet);
+        }
+        return seq;
+    }
+
+    private static void check(int[] a, int[] b) {
+        List<Diff.Edit> edits = Diff.diff(a, b);
+        assertArrayEquals(Arrays.toString(a) + " -> " + Arrays.toString(b), b, apply(a, b, edits));
+        int deleted = 0;
+        for (Diff.Edit edit : edits) {
+            deleted += edit.aEnd - edit.aStart;
+        }
+        assertEquals(a.length - lcs(a, b), deleted);
+    }
+
+    @Test
+    public void edgeCases() {
+        check(new int[0], new int[0]);
+        check(new int[0], new int[]{1, 2});
+        check(new int[]{1, 2}, new int[0]);
+        check(new int[]{1, 2, 3}, new int[]{1, 2, 3});
+        check(new int[]{1, 2, 3}, new int[]{4, 5});
+        check(new int[]{1, 1, 1, 1}, new int[]{1, 1});
+    }
+
+    @Test
+    public void randomSequences() {
+        Random random = new Random(1);
+        for (int round = 0; round < 3000; round++) {
+            int alphabet = 1 + random.nextInt(8);
+            check(randomSeq(random, random.nextInt(40), alphabet), randomSeq(random, random.nextInt(40), alphabet));
+        }
+    }
+
+    @Test
+    public void smallEditsOfLongSequence() {
+        Random random = new Random(2);
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSeq(random, 300 + random.nextInt(300), 50);
+            int[] b = a.clone();
+            for (int k = random.nextInt(10); k > 0; k--) {
+                int pos = random.nextInt(b.length);
+                int[] next = new int[b.length + 1];
+                System.arraycopy(b, 0, next, 0, pos);
+                next[pos] = random.nextInt(60);
+                System.arraycopy(b, pos, next, pos + 1, b.length - pos);
+                b = random.nextBoolean() ? next : Arrays.copyOfRange(b, 0, b.length - 1);
+            }
+            check(a, b);
+        }
+    }
+
+    @Test
+    public void linesApplyBackToTarget() throws IOException {
+        String[][] cases = {
+            {"a\nb\nc\n", "a\nx\nc\n"},
+            {"a\nb\nc", "a\nb\nc\n"},
+            {"", "新\n内容"},
+            {"one\r\ntwo\r\n", "one\r\n2\r\ntwo\r\n"},
+            {"x\n\n\ny\n", "\n\nx\ny"},
+        };
+        for (String[] pair : cases) {
+            Diff.Lines a = Diff.Lines.split(pair[0].getBytes(StandardCharsets.UTF_8));
+            Diff.Lines b = Diff.Lines.split(pair[1].getBytes(StandardCharsets.UTF_8));
+            int[][] seqs = Diff.intern(a, b);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int aPos = 0;
+            for (Diff.Edit edit : Diff.diff(seqs[0], seqs[1])) {
+                a.writeTo(out, aPos, edit.aStart);
+                b.writeTo(out, edit.bStart, edit.bEnd);
+                aPos = edit.aEnd;
+            }
+            a.writeTo(out, aPos, a.size());
+            assertEquals(pair[1], new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
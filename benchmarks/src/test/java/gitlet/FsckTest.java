@@ -0,0 +1,44 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static gitlet.BatchTest.runGitlet;
+import static org.junit.Assert.*;
+
+/** fsck的退出码：发现dangling以外的问题时为1 */
+public class FsckTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void exitStatusReflectsErrors() throws Exception {
+        File dir = folder.getRoot();
+        Files.write(new File(dir, "a.txt").toPath(), "hello\n".getBytes(StandardCharsets.UTF_8));
+        runGitlet(dir, "init");
+        runGitlet(dir, "add", "a.txt");
+        runGitlet(dir, "commit", "add a");
+        String[] result = runGitlet(dir, "fsck");
+        assertEquals(result[1], "0", result[0]);
+
+        File blob = new File(new File(dir, ".gitlet/objects/blobs"),
+            Utils.sha1("hello\n".getBytes(StandardCharsets.UTF_8)).substring(0, 2));
+        blob = blob.listFiles()[0];
+        blob.setWritable(true);
+        Files.write(blob.toPath(), "corrupt\n".getBytes(StandardCharsets.UTF_8));
+        result = runGitlet(dir, "fsck");
+        assertEquals(result[1], "1", result[0]);
+        assertTrue(result[1], result[1].contains("hash mismatch"));
+
+        Files.write(new File(dir, "script.txt").toPath(), "fsck\nlog\n".getBytes(StandardCharsets.UTF_8));
+        result = runGitlet(dir, "batch", "script.txt");
+        assertEquals(result[1], "1", result[0]);
+        assertTrue(result[1], result[1].contains("add a"));
+    }
+}
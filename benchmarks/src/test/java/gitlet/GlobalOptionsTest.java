@@ -0,0 +1,42 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static gitlet.BatchTest.runGitlet;
+import static org.junit.Assert.*;
+
+/** --stats、--trace只在命令名之前作为全局选项 之后的同名参数属于命令 */
+public class GlobalOptionsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void optionsAfterTheCommandAreOperands() throws Exception {
+        File dir = folder.getRoot();
+        runGitlet(dir, "init");
+        Files.write(new File(dir, "a.txt").toPath(), "a\n".getBytes(StandardCharsets.UTF_8));
+        runGitlet(dir, "add", "a.txt");
+        String[] result = runGitlet(dir, "commit", "--stats");
+        assertEquals(result[1], "", result[1]);
+        assertTrue(runGitlet(dir, "log")[1].contains("\n--stats\n"));
+        assertTrue(runGitlet(dir, "find", "--stats")[1].matches("(?s)[0-9a-f]{40}\n.*"));
+        assertEquals("Found no commit with that message.\n", runGitlet(dir, "find", "--trace")[1]);
+    }
+
+    @Test
+    public void optionsBeforeTheCommandAreGlobal() throws Exception {
+        File dir = folder.getRoot();
+        runGitlet(dir, "init");
+        String[] result = runGitlet(dir, "--trace", "--stats", "status");
+        assertEquals(result[1], "0", result[0]);
+        assertTrue(result[1], result[1].contains("=== Branches ==="));
+        assertTrue(result[1], result[1].contains("readContents"));
+    }
+}
@@ -0,0 +1,67 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static gitlet.BatchTest.runGitlet;
+import static org.junit.Assert.*;
+
+/** link模式检出与clone：在原地修改工作目录中的文件不会改动clone出的仓库 被改动的对象由fsck报告而不是被删除 */
+public class LinkModeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inPlaceEditDoesNotReachClones() throws Exception {
+        File a = folder.newFolder("a");
+        File c = new File(folder.getRoot(), "c");
+        runGitlet(a, "init");
+        runGitlet(a, "config", "checkout.mode", "link");
+        Files.write(new File(a, "f.txt").toPath(), "hello\n".getBytes(StandardCharsets.UTF_8));
+        runGitlet(a, "add", "f.txt");
+        runGitlet(a, "commit", "one");
+        runGitlet(a, "branch", "b");
+        runGitlet(a, "rm", "f.txt");
+        runGitlet(a, "commit", "gone");
+        assertTrue(runGitlet(a, "--stats", "checkout", "b")[1].contains("1 linked"));
+        assertEquals("0", runGitlet(a, "clone", a.getPath(), c.getPath())[0]);
+
+        File file = new File(a, "f.txt");
+        file.setWritable(true);
+        Files.write(file.toPath(), "changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        String[] result = runGitlet(a, "status");
+        assertTrue(result[1], result[1].contains("was modified in place"));
+        result = runGitlet(a, "fsck");
+        assertEquals(result[1], "1", result[0]);
+        assertTrue(result[1], result[1].contains("hash mismatch"));
+
+        result = runGitlet(c, "fsck");
+        assertEquals(result[1], "0", result[0]);
+        assertEquals("hello\n", new String(Files.readAllBytes(new File(c, "f.txt").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void sharedBlobsAreCopied() throws Exception {
+        File a = folder.newFolder("a");
+        File c = new File(folder.getRoot(), "c");
+        runGitlet(a, "init");
+        Files.write(new File(a, "f.txt").toPath(), "hello\n".getBytes(StandardCharsets.UTF_8));
+        runGitlet(a, "add", "f.txt");
+        runGitlet(a, "commit", "one");
+        runGitlet(a, "clone", a.getPath(), c.getPath());
+        runGitlet(c, "config", "checkout.mode", "link");
+        runGitlet(c, "branch", "b");
+        runGitlet(c, "rm", "f.txt");
+        runGitlet(c, "commit", "gone");
+        String[] result = runGitlet(c, "--stats", "checkout", "b");
+        assertTrue(result[1], result[1].contains("0 linked"));
+        assertEquals(1, Files.getAttribute(new File(c, "f.txt").toPath(), "unix:nlink"));
+    }
+}
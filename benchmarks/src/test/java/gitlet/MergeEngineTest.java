@@ -0,0 +1,174 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * MergeEngine的分类与原来merge中的三遍扫描对照：
+ *  modifiedOrAddInMergedBranch  只在给定分支修改 或只在给定分支新增        TAKE_THEIRS
+ *  deletedInMergedBranch        给定分支删除 当前分支未修改                 DELETE
+ *  bothModified                 两边新增且内容不同、两边修改且三个版本都不同、
+ *                               一边修改一边删除                            CONFLICT
+ */
+public class MergeEngineTest {
+
+    /** 原来的三遍扫描  返回 文件名 -- 结果 按文件名排序 */
+    private static TreeMap<String, MergeEngine.Action> reference(Map<String, String> split,
+                                                                  Map<String, String> cur,
+                                                                  Map<String, String> merged) {
+        TreeMap<String, MergeEngine.Action> result = new TreeMap<>();
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !split.get(fileName).equals(entry.getValue())
+                    && cur.containsKey(fileName) && cur.get(fileName).equals(split.get(fileName))) {
+                result.put(fileName, MergeEngine.Action.TAKE_THEIRS);
+            } else if (!split.containsKey(fileName) && !cur.containsKey(fileName)) {
+                result.put(fileName, MergeEngine.Action.TAKE_THEIRS);
+            }
+        }
+        for (Map.Entry<String, String> entry : cur.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !merged.containsKey(fileName)
+                    && entry.getValue().equals(split.get(fileName))) {
+                assertNull(result.put(fileName, MergeEngine.Action.DELETE));
+            }
+        }
+        for (Map.Entry<String, String> entry : cur.entrySet()) {
+            String fileName = entry.getKey();
+            String curVersion = entry.getValue();
+            String splitVersion = split.get(fileName);
+            String mergedVersion = merged.get(fileName);
+            if (splitVersion == null && mergedVersion != null && !curVersion.equals(mergedVersion)
+                    || splitVersion != null && mergedVersion != null && !splitVersion.equals(curVersion)
+                    && !splitVersion.equals(mergedVersion) && !curVersion.equals(mergedVersion)
+                    || splitVersion != null && !splitVersion.equals(curVersion) && mergedVersion == null) {
+                assertNull(result.put(fileName, MergeEngine.Action.CONFLICT));
+            }
+        }
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            String fileName = entry.getKey();
+            if (split.containsKey(fileName) && !split.get(fileName).equals(entry.getValue())
+                    && !cur.containsKey(fileName)) {
+                assertNull(result.put(fileName, MergeEngine.Action.CONFLICT));
+            }
+        }
+        return result;
+    }
+
+    private static TreeMap<String, MergeEngine.Action> actual(Map<String, String> split,
+                                                               Map<String, String> cur,
+                                                               Map<String, String> merged) {
+        TreeMap<String, MergeEngine.Action> result = new TreeMap<>();
+        List<String> order = new ArrayList<>();
+        for (MergeEngine.Change change : MergeEngine.classify(split, cur, merged)) {
+            assertEquals(change.path, change.oursPath);
+            assertEquals(split.get(change.path), change.base);
+            assertEquals(cur.get(change.path), change.ours);
+            assertEquals(merged.get(change.path), change.theirs);
+            result.put(change.path, change.action);
+            order.add(change.path);
+        }
+        assertEquals(new ArrayList<>(result.keySet()), order);
+        return result;
+    }
+
+    @Test
+    public void everyCombinationOfVersions() {
+        //每个文件在三个版本中 不存在 或为v1/v2/v3之一  共4^3种组合
+        String[] versions = {null, "v1", "v2", "v3"};
+        Map<String, String> split = new HashMap<>();
+        Map<String, String> cur = new HashMap<>();
+        Map<String, String> merged = new HashMap<>();
+        for (int s = 0; s < 4; s++) {
+            for (int c = 0; c < 4; c++) {
+                for (int m = 0; m < 4; m++) {
+                    String fileName = "f" + s + c + m;
+                    putIfPresent(split, fileName, versions[s]);
+                    putIfPresent(cur, fileName, versions[c]);
+                    putIfPresent(merged, fileName, versions[m]);
+                    assertEquals(fileName, reference(split, cur, merged).get(fileName),
+                        MergeEngine.classify(versions[s], versions[c], versions[m]));
+                }
+            }
+        }
+        assertEquals(reference(split, cur, merged), actual(split, cur, merged));
+    }
+
+    @Test
+    public void randomCommits() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            Map<String, String> split = new HashMap<>();
+            Map<String, String> cur = new HashMap<>();
+            Map<String, String> merged = new HashMap<>();
+            int files = random.nextInt(200);
+            for (int i = 0; i < files; i++) {
+                String fileName = "dir" + random.nextInt(5) + "/文件" + i;
+                putIfPresent(split, fileName, randomVersion(random));
+                putIfPresent(cur, fileName, randomVersion(random));
+                putIfPresent(merged, fileName, randomVersion(random));
+            }
+            assertEquals(reference(split, cur, merged), actual(split, cur, merged));
+            assertEquals(reference(split, cur, merged),
+                actual(PathTable.of(split), PathTable.of(cur), PathTable.of(merged)));
+        }
+    }
+
+    @Test
+    public void renamesAreAlignedToTheSplitPoint() {
+        String v1 = Utils.sha1("v1");
+        String v2 = Utils.sha1("v2");
+        String v3 = Utils.sha1("v3");
+        for (boolean tables : new boolean[]{false, true}) {
+            Map<String, String> split = new HashMap<>();
+            Map<String, String> cur = new HashMap<>();
+            Map<String, String> merged = new HashMap<>();
+            //给定分支把a重命名为b 当前分支修改了a
+            split.put("a", v1);
+            cur.put("a", v2);
+            merged.put("b", v1);
+            //当前分支把c重命名为d 给定分支修改了c
+            split.put("c", v1);
+            cur.put("d", v1);
+            merged.put("c", v3);
+            //只在给定分支中重命名 内容未修改
+            split.put("e", v1);
+            cur.put("e", v1);
+            merged.put("f", v1);
+            List<RenameDetector.Rename> oursRenames = new ArrayList<>();
+            oursRenames.add(new RenameDetector.Rename("c", "d", 100, false));
+            List<RenameDetector.Rename> theirsRenames = new ArrayList<>();
+            theirsRenames.add(new RenameDetector.Rename("a", "b", 100, false));
+            theirsRenames.add(new RenameDetector.Rename("e", "f", 100, false));
+            List<MergeEngine.Change> changes = tables
+                ? MergeEngine.classify(PathTable.of(split), PathTable.of(cur), PathTable.of(merged),
+                    oursRenames, theirsRenames)
+                : MergeEngine.classify(split, cur, merged, oursRenames, theirsRenames);
+            assertEquals("[KEEP_OURS b, TAKE_THEIRS d, KEEP_OURS f]", changes.toString());
+            assertEquals("a", changes.get(0).oursPath);
+            assertEquals(v2, changes.get(0).ours);
+            assertEquals("d", changes.get(1).oursPath);
+            assertEquals(v3, changes.get(1).theirs);
+            assertEquals("e", changes.get(2).oursPath);
+        }
+    }
+
+    private static String randomVersion(Random random) {
+        int v = random.nextInt(4);
+        return v == 0 ? null : Utils.sha1("v" + v);
+    }
+
+    private static void putIfPresent(Map<String, String> map, String fileName, String version) {
+        if (version != null) {
+            map.put(fileName, version);
+        }
+    }
+}
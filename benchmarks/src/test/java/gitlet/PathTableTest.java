@@ -0,0 +1,178 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * PathTable与TreeMap（同样按String.compareTo排序）对照：查找、遍历、Builder和changedPaths
+ * 文件名包含非ASCII字符和代理对（UTF-8编码为4字节 UTF-16为两个char） 值包含不能压缩为二进制的非十六进制字符串
+ */
+public class PathTableTest {
+
+    private static final String[] PARTS = {"src", "main", "a", "ab", "b.txt", "文档", "目录", "😀",
+        "😀x", "é", "z", "Z", "￿", "a b"};
+
+    private static String randomPath(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            sb.append(PARTS[random.nextInt(PARTS.length)]);
+            if (random.nextBoolean()) {
+                sb.append(random.nextInt(20));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomID(Random random) {
+        if (random.nextInt(20) == 0) {
+            return "raw-" + random.nextInt(5) + "-值";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Utils.UID_LENGTH; i++) {
+            sb.append("0123456789abcdef".charAt(random.nextInt(16)));
+        }
+        return sb.toString();
+    }
+
+    private static TreeMap<String, String> randomMap(Random random, int size) {
+        TreeMap<String, String> map = new TreeMap<>();
+        while (map.size() < size) {
+            map.put(randomPath(random), randomID(random));
+        }
+        return map;
+    }
+
+    private static void assertSameAs(TreeMap<String, String> expected, PathTable table) {
+        assertEquals(expected.size(), table.size());
+        Iterator<Map.Entry<String, String>> it = table.entrySet().iterator();
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertTrue(it.hasNext());
+            Map.Entry<String, String> actual = it.next();
+            assertEquals(entry.getKey(), actual.getKey());
+            assertEquals(entry.getValue(), actual.getValue());
+            assertTrue(table.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+        assertFalse(it.hasNext());
+        assertEquals(expected, table.toHashMap());
+    }
+
+    private static List<String> changedPaths(TreeMap<String, String> a, TreeMap<String, String> b) {
+        TreeMap<String, String> all = new TreeMap<>(a);
+        all.putAll(b);
+        List<String> changed = new ArrayList<>();
+        for (String path : all.keySet()) {
+            if (!a.containsKey(path) || !b.containsKey(path) || !a.get(path).equals(b.get(path))) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    @Test
+    public void emptyTable() {
+        assertEquals(0, PathTable.EMPTY.size());
+        assertNull(PathTable.EMPTY.get("a"));
+        assertFalse(PathTable.EMPTY.entrySet().iterator().hasNext());
+        assertSame(PathTable.EMPTY, PathTable.EMPTY.toBuilder().build());
+    }
+
+    @Test
+    public void lookupAndIteration() {
+        Random random = new Random(1);
+        for (int size : new int[]{1, 15, 16, 17, 100, 2000}) {
+            TreeMap<String, String> expected = randomMap(random, size);
+            PathTable table = PathTable.of(expected);
+            assertSameAs(expected, table);
+            for (int i = 0; i < 200; i++) {
+                String path = randomPath(random);
+                assertEquals(expected.get(path), table.get(path));
+                assertEquals(expected.containsKey(path), table.containsKey(path));
+            }
+            assertNull(table.get(""));
+            assertNull(table.get(expected.lastKey() + "￿"));
+        }
+    }
+
+    @Test
+    public void surrogateOrder() {
+        //String.compareTo按UTF-16比较：代理对（0xD83D）排在U+FFFF之前 与按码点排序的顺序不同
+        TreeMap<String, String> expected = new TreeMap<>();
+        expected.put("￿", randomID(new Random(2)));
+        expected.put("😀", randomID(new Random(3)));
+        expected.put("😀/😁", randomID(new Random(4)));
+        expected.put("😁", "raw");
+        assertSameAs(expected, PathTable.of(expected));
+    }
+
+    @Test
+    public void builder() {
+        Random random = new Random(5);
+        TreeMap<String, String> expected = randomMap(random, 500);
+        PathTable table = PathTable.of(expected);
+        for (int round = 0; round < 50; round++) {
+            PathTable.Builder builder = table.toBuilder();
+            int edits = random.nextInt(40);
+            for (int i = 0; i < edits; i++) {
+                String path = random.nextBoolean() && !expected.isEmpty()
+                    ? expected.ceilingKey(randomPath(random)) : randomPath(random);
+                if (path == null) {
+                    continue;
+                }
+                if (random.nextInt(3) == 0) {
+                    builder.remove(path);
+                    expected.remove(path);
+                } else {
+                    String ID = randomID(random);
+                    builder.put(path, ID);
+                    expected.put(path, ID);
+                }
+            }
+            PathTable next = builder.build();
+            if (edits == 0) {
+                assertSame(table, next);
+            }
+            assertSameAs(expected, next);
+            table = next;
+        }
+    }
+
+    @Test
+    public void changedPathsMatchesTreeMap() {
+        Random random = new Random(6);
+        for (int round = 0; round < 100; round++) {
+            TreeMap<String, String> a = randomMap(random, random.nextInt(300));
+            TreeMap<String, String> b = new TreeMap<>(a);
+            int edits = random.nextInt(30);
+            for (int i = 0; i < edits; i++) {
+                String path = random.nextBoolean() && !b.isEmpty() ? b.ceilingKey(randomPath(random)) : randomPath(random);
+                if (path == null) {
+                    continue;
+                }
+                if (random.nextInt(3) == 0) {
+                    b.remove(path);
+                } else {
+                    b.put(path, randomID(random));
+                }
+            }
+            PathTable x = PathTable.of(a);
+            PathTable y = PathTable.of(b);
+            List<String> expected = changedPaths(a, b);
+            assertEquals(expected, x.changedPaths(y));
+            assertEquals(expected, y.changedPaths(x));
+            assertTrue(x.changedPaths(x).isEmpty());
+        }
+    }
+}
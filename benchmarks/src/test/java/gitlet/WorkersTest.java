@@ -0,0 +1,50 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/** Workers.forEach：每一项恰好执行一次 在占满线程池的任务中调用也不会死锁 */
+public class WorkersTest {
+
+    @Test(timeout = 60000)
+    public void forEachInsideSaturatedPool() throws Exception {
+        int tasks = Workers.MAX_CONCURRENCY * 2;
+        int items = 100;
+        AtomicIntegerArray counts = new AtomicIntegerArray(tasks * items);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < tasks; t++) {
+            int task = t;
+            futures.add(Workers.submit(() -> {
+                Workers.forEach(items, i -> counts.incrementAndGet(task * items + i));
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            assertEquals(1, counts.get(i));
+        }
+    }
+
+    @Test
+    public void forEachRethrowsFailure() {
+        try {
+            Workers.forEach(50, i -> {
+                if (i == 7) {
+                    throw new IllegalArgumentException("Corrupt chunk 7");
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Corrupt chunk 7", e.getMessage());
+        }
+        Workers.forEach(0, i -> fail());
+    }
+}